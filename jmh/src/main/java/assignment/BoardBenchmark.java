@@ -0,0 +1,73 @@
+package assignment;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for TetrisBoard's moves, copies, drop heights and cell reads, on each
+ * fixture stack at each board width.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+    @Param({"empty", "midgame", "jagged"})
+    public String stack;
+
+    @Param({"10", "20"})
+    public int width;
+
+    private Board board;
+    private final MoveRecord record = new MoveRecord();
+
+    @Setup
+    public void setUp() {
+        board = Fixtures.board(stack, width);
+    }
+
+    @Benchmark
+    public Board.Result move() {
+        board.move(Board.Action.LEFT);
+        return board.move(Board.Action.RIGHT);
+    }
+
+    @Benchmark
+    public Board.Result moveUndoDrop() {
+        Board.Result result = board.move(Board.Action.DROP, record);
+        board.undo(record);
+        return result;
+    }
+
+    @Benchmark
+    public Board testMoveDrop() {
+        return board.testMove(Board.Action.DROP);
+    }
+
+    @Benchmark
+    public int dropHeight() {
+        return board.dropHeight(board.getCurrentPiece(), board.getCurrentPiecePosition().x);
+    }
+
+    @Benchmark
+    public void getGrid(Blackhole blackhole) {
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                blackhole.consume(board.getGrid(x, y));
+            }
+        }
+    }
+}
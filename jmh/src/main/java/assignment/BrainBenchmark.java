@@ -0,0 +1,81 @@
+package assignment;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for scoring boards and choosing moves: the incremental FeatureEvaluator,
+ * and a whole decision by MyBrain, BeamBrain and ExpectimaxBrain, on each fixture stack at
+ * each board width.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BrainBenchmark {
+    @Param({"empty", "midgame", "jagged"})
+    public String stack;
+
+    @Param({"10", "20"})
+    public int width;
+
+    private Board board;
+    private final LinearEvaluator linear = new LinearEvaluator(MyBrain.DEFAULT_COEF);
+    private final FeatureEvaluator features = new FeatureEvaluator(linear.getRequiredFeatures());
+    private TetrisPiece current;
+    private int dropX, dropY;
+    private MyBrain brain;
+    private BeamBrain beam;
+    private ExpectimaxBrain expectimax;
+
+    @Setup
+    public void setUp() {
+        board = Fixtures.board(stack, width);
+        // the current piece dropped, scored from the features of the board before the drop
+        features.reset(board);
+        current = (TetrisPiece) board.getCurrentPiece();
+        dropX = board.getCurrentPiecePosition().x;
+        dropY = Fixtures.dropY(board);
+        brain = new MyBrain(MyBrain.DEFAULT_COEF);
+        beam = new BeamBrain(MyBrain.DEFAULT_COEF, BeamBrain.DEFAULT_WIDTH, BeamBrain.DEFAULT_DEPTH, Long.MAX_VALUE);
+        beam.setPreview(List.of(PieceBag.PIECES));
+        // searched on the calling thread with no deadline, so every call does the same work
+        expectimax = new ExpectimaxBrain(MyBrain.DEFAULT_COEF, ExpectimaxBrain.DEFAULT_PREVIEW, ExpectimaxBrain.DEFAULT_DEPTH,
+            ExpectimaxBrain.DEFAULT_CANDIDATES, Long.MAX_VALUE, null);
+        expectimax.setPreview(List.of(PieceBag.PIECES));
+    }
+
+    @Benchmark
+    public double featuresEvaluate() {
+        features.evaluate(current, dropX, dropY);
+        return linear.score(features);
+    }
+
+    @Benchmark
+    public Board.Action brainNextMove() {
+        return brain.nextMove(board);
+    }
+
+    @Benchmark
+    public Board.Action beamNextMove() {
+        return beam.nextMove(board);
+    }
+
+    @Benchmark
+    public Board.Action expectimaxNextMove() {
+        return expectimax.nextMove(board);
+    }
+}
@@ -0,0 +1,93 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.Random;
+
+/**
+ * The boards the benchmarks run against: an empty board, a seeded mid-game board and a
+ * tall, jagged stack, each at any width. Every board has a T piece, or the game's next
+ * piece, in play at the spawn position.
+ */
+final class Fixtures {
+    // The height of every fixture, including the rows pieces spawn in.
+    static final int HEIGHT = GameEngine.HEIGHT + GameEngine.TOP_SPACE;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns a new board of the given width with the named stack: "empty", "midgame" or
+     * "jagged".
+     */
+    static Board board(String stack, int width) {
+        switch (stack) {
+          case "empty":
+            return withPiece(new TetrisBoard(width, HEIGHT));
+          case "midgame":
+            return midGame(width, 40, 7);
+          case "jagged":
+            return withPiece(jagged(width, 3));
+          default:
+            throw new IllegalArgumentException("unknown stack " + stack);
+        }
+    }
+
+    /**
+     * Returns the y the current piece lands at if it is dropped straight down.
+     */
+    static int dropY(Board board) {
+        Point position = board.getCurrentPiecePosition();
+        int y = position.y;
+        while (board.canPlace(board.getCurrentPiece(), position.x, y - 1)) {
+            y--;
+        }
+        return y;
+    }
+
+    // Gives the board a T piece at the spawn position.
+    private static Board withPiece(Board board) {
+        Piece piece = TetrisPiece.getPiece(Piece.PieceType.T, 0);
+        board.nextPiece(piece, GameEngine.spawnPosition(board, piece));
+        return board;
+    }
+
+    // Plays the given number of pieces of a seeded MyBrain game, the way GameEngine does
+    // but on a board of any width, and returns the board with the next piece in play.
+    private static Board midGame(int width, int pieces, long seed) {
+        Board board = new TetrisBoard(width, HEIGHT);
+        PieceBag bag = new PieceBag(new Random(seed));
+        MyBrain brain = new MyBrain(MyBrain.DEFAULT_COEF);
+        for (int played = 0; played < pieces; played++) {
+            Piece piece = bag.next();
+            board.nextPiece(piece, GameEngine.spawnPosition(board, piece));
+            brain.setPreview(bag.peek(GameEngine.PREVIEW_SIZE), bag.unseen(GameEngine.PREVIEW_SIZE));
+            Board.Result result = Board.Result.SUCCESS;
+            for (int actions = 0; result != Board.Result.PLACE && result != Board.Result.NO_PIECE; actions++) {
+                result = board.move(actions < GameEngine.MAX_ACTIONS_PER_PIECE ? brain.nextMove(board) : Board.Action.DROP);
+            }
+        }
+        Piece piece = bag.next();
+        board.nextPiece(piece, GameEngine.spawnPosition(board, piece));
+        return board;
+    }
+
+    // Builds a tall stack of uneven columns with some holes, leaving the last column empty so
+    // no row is ever full, using vertical sticks placed at random heights.
+    private static Board jagged(int width, long seed) {
+        Random random = new Random(seed);
+        Board board = new TetrisBoard(width, HEIGHT);
+        Piece stick = TetrisPiece.getPiece(Piece.PieceType.STICK, 1);
+        int maxStack = HEIGHT - GameEngine.TOP_SPACE - 4;
+        MoveRecord record = new MoveRecord();
+        for (int x = 0; x < width - 1; x++) {
+            int y = 0;
+            int target = random.nextInt(maxStack);
+            while (y + 4 <= target) {
+                // the vertical stick's blocks are in column 2 of its bounding box
+                board.place(stick, x - 2, y, record);
+                y += 4 + (random.nextInt(4) == 0 ? 1 : 0);
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,171 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A brain that looks ahead through the preview. It places the current piece and then
+ * each previewed piece in turn, keeping only the best few boards at each step (a beam
+ * search), and plays the current piece's placement that leads to the best board at the
+ * end. Boards are scored with an Evaluator, MyBrain's linear one by default, plus what
+ * the placements on the way there scored for themselves, like the lines they cleared.
+ *
+ * The search stops at the configured depth, at the end of the preview, or when its
+ * time budget runs out, whichever comes first. The current piece is always searched in
+ * full, so running out of time falls back to the deepest step that finished.
+ */
+public class BeamBrain extends MyBrain {
+    public static final int DEFAULT_WIDTH = 8;
+    public static final int DEFAULT_DEPTH = 3;
+    public static final long DEFAULT_BUDGET_NANOS = 20_000_000L;
+
+    // Ranks placements best first; ties go to smaller keys so the search is repeatable.
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+        .comparingDouble((Candidate c) -> -c.value)
+        .thenComparingLong(c -> c.rootKey)
+        .thenComparingLong(c -> c.key);
+
+    private final int width;
+    private final int depth;
+    private final long budgetNanos;
+    private final Reachability reachability = new Reachability();
+    private final FeatureEvaluator features = new FeatureEvaluator(evaluator.getRequiredFeatures());
+    private List<Piece> preview = List.of();
+
+    /**
+     * Creates a brain that keeps the best width boards at each step, and looks at most
+     * depth pieces ahead (counting the current one) or budgetNanos per decision.
+     */
+    public BeamBrain(double[] coef, int width, int depth, long budgetNanos) {
+        this(new LinearEvaluator(coef), width, depth, budgetNanos);
+    }
+
+    /**
+     * Creates a brain like the one above that scores boards with the given evaluator.
+     */
+    public BeamBrain(Evaluator evaluator, int width, int depth, long budgetNanos) {
+        super(evaluator, null);
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("beam width and depth must be at least 1");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.budgetNanos = budgetNanos;
+    }
+
+    @Override
+    public void setPreview(List<Piece> preview) {
+        this.preview = List.copyOf(preview);
+    }
+
+    @Override
+    Placement bestPlacement(Board currentBoard) {
+        if (currentBoard.getCurrentPiece() == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        int steps = Math.min(depth, preview.size() + 1);
+
+        List<Node> beam = new ArrayList<>();
+        beam.add(new Node(currentBoard.testMove(Board.Action.NOTHING), 0, 0));
+        Candidate best = null;
+        for (int step = 0; step < steps; step++) {
+            List<Candidate> candidates = new ArrayList<>();
+            for (Node node : beam) {
+                if (step > 0 && System.nanoTime() - start >= budgetNanos) {
+                    // A half searched step would favour the boards that happened to come first.
+                    return pathTo(currentBoard, best.rootKey);
+                }
+                expand(node, step == 0 ? null : preview.get(step - 1), candidates);
+            }
+            if (candidates.isEmpty()) {
+                // Every board tops out here, so play towards the best one from the last step.
+                break;
+            }
+            candidates.sort(BEST_FIRST);
+            best = candidates.get(0);
+            if (step + 1 < steps) {
+                // The same stack can be reached by placing pieces in a different order; keep
+                // only its best way in, so the beam holds width different boards.
+                beam = new ArrayList<>();
+                Set<Board> stacks = new HashSet<>();
+                for (int i = 0; i < candidates.size() && beam.size() < width; i++) {
+                    Node node = candidates.get(i).toNode();
+                    if (stacks.add(node.board)) {
+                        beam.add(node);
+                    }
+                }
+            }
+        }
+        return best == null ? null : pathTo(currentBoard, best.rootKey);
+    }
+
+    // Scores every placement of the piece on the node's board from the board's features,
+    // adding them to candidates.
+    // A null piece means the board's current piece, where it is now; other pieces start
+    // at the spawn position.
+    private void expand(Node node, Piece piece, List<Candidate> candidates) {
+        Board board = node.board;
+        if (piece == null) {
+            reachability.compute(board);
+        } else {
+            Point spawn = GameEngine.spawnPosition(board, piece);
+            reachability.compute(board, piece, spawn.x, spawn.y);
+        }
+        features.reset(board);
+        for (int i = 0; i < reachability.getCount(); i++) {
+            TetrisPiece placed = reachability.getPiece(i);
+            int x = reachability.getX(i);
+            int y = reachability.getY(i);
+            features.evaluate(placed, x, y);
+            double value = node.lineBonus + evaluator.score(features);
+            double reward = evaluator.placementScore(features);
+            long key = Placement.key(placed, x, y);
+            candidates.add(new Candidate(node, placed, x, y, reward, value, piece == null ? key : node.rootKey, key));
+        }
+    }
+
+    // A board in the beam, with what the placements on the way to it scored for themselves
+    // and the key of the current piece's placement it started from.
+    private static final class Node {
+        final Board board;
+        final double lineBonus;
+        final long rootKey;
+
+        Node(Board board, double lineBonus, long rootKey) {
+            this.board = board;
+            this.lineBonus = lineBonus;
+            this.rootKey = rootKey;
+        }
+    }
+
+    // A scored placement on a node's board; only the ones kept in the beam get a board.
+    private final class Candidate {
+        final Node parent;
+        final TetrisPiece piece;
+        final int x, y;
+        final double reward, value;
+        final long rootKey, key;
+
+        Candidate(Node parent, TetrisPiece piece, int x, int y, double reward, double value, long rootKey, long key) {
+            this.parent = parent;
+            this.piece = piece;
+            this.x = x;
+            this.y = y;
+            this.reward = reward;
+            this.value = value;
+            this.rootKey = rootKey;
+            this.key = key;
+        }
+
+        Node toNode() {
+            Board board = parent.board.testMove(Board.Action.NOTHING);
+            board.place(piece, x, y, null);
+            return new Node(board, parent.lineBonus + reward, rootKey);
+        }
+    }
+}
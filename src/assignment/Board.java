@@ -82,8 +82,11 @@ public interface Board {
          * "Hold" a piece until a later time, or "unhold" the piece so it
          * returns to play.
          *
-         * Used only in karma; you can treat this as "NOTHING" if you are not
-         * implementing it.
+         * The current piece goes into the hold slot in its spawn rotation. If a piece was
+         * held, it comes back into play at {@link #getSpawnPosition(Piece)}, centered where the
+         * current piece was given to the board; if not, the board is left without a current
+         * piece and returns Result.NO_PIECE, so the next piece should be given to it. A piece can only be held once: until the next piece is placed, HOLD
+         * returns Result.OUT_BOUNDS, as it does when the held piece doesn't fit there.
          */
         HOLD
     }
@@ -93,6 +96,28 @@ public interface Board {
      */
     Result move(Action act);
 
+    /**
+     * Applies the given action to the board like {@link #move(Action)}, saving into the
+     * given record everything needed to take the move back with {@link #undo(MoveRecord)}.
+     */
+    Result move(Action act, MoveRecord record);
+
+    /**
+     * Places the given piece with the lower-left hand corner of its bounding box at (x, y) and
+     * locks it into the stack, replacing the current piece, as if the current piece had been
+     * moved there and placed. The record is filled in so the placement can be undone.
+     *
+     * If the piece would intersect with existing pieces or go out of the bounds of the board, an
+     * {@link IllegalArgumentException} is thrown and the board is left unchanged.
+     */
+    Result place(Piece piece, int x, int y, MoveRecord record);
+
+    /**
+     * Takes back the move saved in the given record, which must be the most recent move applied
+     * to this board that has not already been undone.
+     */
+    void undo(MoveRecord record);
+
     /**
      * Returns a new board whose state is equal to what the state of this
      * board would be after the input Action. This operation does not mutate
@@ -117,6 +142,26 @@ public interface Board {
      */
     Point getCurrentPiecePosition();
 
+    /**
+     * Returns the piece in the hold slot, in its spawn rotation, or null if nothing has been
+     * held yet.
+     */
+    Piece getHeldPiece();
+
+    /**
+     * Returns true if the current piece can be swapped with the hold slot: there is a current
+     * piece, and no piece has been held since the last one was placed.
+     */
+    boolean canHold();
+
+    /**
+     * Returns where the given piece comes into play if it is brought back from the hold slot:
+     * in the row the last piece given to {@link #nextPiece(Piece, Point)} was put at, centered
+     * on the same column, so a piece of another width comes back at a different x. Returns null
+     * if no piece has been given yet. Changing the returned point doesn't change the board.
+     */
+    Point getSpawnPosition(Piece piece);
+
     /**
      * Give a piece to the board to use as its next piece, placing the lower left hand corner
      * of the piece's bounding box at the given position.
@@ -132,11 +177,20 @@ public interface Board {
      * with an instanceof, though!
      *
      * This should measure the "semantic equality" of two boards - they should be considered equal
-     * if they have the same current piece in the same position and have the same grid, but should
-     * be oblivious to other internal state like the last action taken/last result returned.
+     * if they have the same current piece in the same position and have the same grid (and, on
+     * boards with a hold slot, the same held piece and the same hold still available, and when a
+     * HOLD would bring the held piece back, the same {@link #getSpawnPosition(Piece)} for it),
+     * but should be oblivious to other internal state like the last action taken/last result
+     * returned.
      */
     boolean equals(Object other);
 
+    /**
+     * Returns a hash code consistent with equals, so boards can be kept in hash based
+     * collections.
+     */
+    int hashCode();
+
     /**
      * Returns the result of the last action given to the board.
      */
@@ -153,6 +207,12 @@ public interface Board {
      */
     int getRowsCleared();
 
+    /**
+     * Returns the index the i-th row cleared by the last action had before it was cleared,
+     * counting from the lowest cleared row; i must be less than getRowsCleared().
+     */
+    int getClearedRow(int i);
+
     /**
      * Returns the width of the board in blocks.
      */
@@ -171,10 +231,20 @@ public interface Board {
 
     /**
      * Given a piece and an x, returns the y value where the piece would come to
-     * rest if it were dropped straight down at that x.
+     * rest if it were dropped straight down at that x, from above the stack.
+     *
+     * If the piece doesn't fit between the walls with the lower-left hand corner of its
+     * bounding box at that x, an {@link IllegalArgumentException} is thrown.
      */
     int dropHeight(Piece piece, int x);
 
+    /**
+     * Returns true if the given piece would be inside the board and clear of the stack with
+     * the lower-left hand corner of its bounding box at (x, y). This does not take the
+     * current piece into consideration.
+     */
+    boolean canPlace(Piece piece, int x, int y);
+
     /**
      * Returns the height of the given column -- i.e. the y value of the highest
      * block + 1.  The height is 0 if the column contains no blocks; this should
@@ -188,6 +258,20 @@ public interface Board {
      */
     int getRowWidth(int y);
 
+    /**
+     * Returns the filled cells of row y as a bitmask, where bit x is set if (x, y) is
+     * filled; this should not take the current piece into consideration.
+     */
+    int getRowMask(int y);
+
+    /**
+     * Returns a 64 bit zobrist hash of the stack, the held piece, the current piece, its
+     * rotation and its position, and the spawn when a HOLD would bring the held piece back
+     * there. Equal boards have equal hashes, and the hash is kept up to
+     * date as pieces are placed and rows cleared, so getting it is constant time.
+     */
+    long getHash();
+
     /**
      * Returns the type of piece that exists at the given position (due to being placed there)
      * - if no placed piece exists at the given position or the given position is out of
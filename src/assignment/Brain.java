@@ -1,5 +1,7 @@
 package assignment;
 
+import java.util.List;
+
 /**
  * Brain interface for JTetris; has a single method which takes the current
  * board state and returns the desired action.
@@ -12,4 +14,21 @@ public interface Brain {
      * Should not mutate the state of the given board.
      */
     Board.Action nextMove(Board currentBoard);
+
+    /**
+     * Tells the brain which pieces will come after the current one, in the order they
+     * will be dealt. Called each time a new piece is put into play; brains that only
+     * look at the current piece can ignore it.
+     */
+    default void setPreview(List<Piece> preview) {
+    }
+
+    /**
+     * Tells the brain the preview, as above, along with the pieces that could come
+     * right after it: the rest of the bag the first piece past the preview is dealt
+     * from. Brains that don't reason about the bag get just the preview.
+     */
+    default void setPreview(List<Piece> preview, List<Piece> unseen) {
+        setPreview(preview);
+    }
 }
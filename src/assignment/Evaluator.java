@@ -0,0 +1,35 @@
+package assignment;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Scores placements for a brain from the features a {@link FeatureEvaluator} measured for
+ * them. Brains take an evaluator, so a new heuristic can be tried by writing an evaluator
+ * (or combining {@link FeatureExtractor}s in a {@link LinearEvaluator}) instead of
+ * changing the brain.
+ */
+public interface Evaluator {
+
+    /**
+     * Scores the last placement the features were evaluated for; higher is better.
+     */
+    double score(FeatureEvaluator features);
+
+    /**
+     * Returns the part of the score earned by the placement itself, like the rows it clears,
+     * rather than by the board it leaves. Brains that look several pieces ahead add this up
+     * for every placement on the way to the board they score.
+     */
+    default double placementScore(FeatureEvaluator features) {
+        return 0;
+    }
+
+    /**
+     * Returns the built in features this evaluator reads. Brains measure features with a
+     * FeatureEvaluator made for this set, which skips the rest. By default that is all of them.
+     */
+    default Set<Feature> getRequiredFeatures() {
+        return EnumSet.allOf(Feature.class);
+    }
+}
@@ -0,0 +1,338 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A brain that looks past the preview by averaging over the pieces the 7-bag can still
+ * deal. Known pieces are searched like BeamBrain's; once the preview runs out, every
+ * piece left in the current bag is equally likely to come next, and a fresh bag is
+ * started when it is empty. Each placement of the current piece is worth the lines it
+ * clears plus the expected value of the best play afterwards, scored with an Evaluator
+ * (MyBrain's linear one by default) when the search runs out of depth.
+ *
+ * The placements of the current piece are searched in parallel on a ForkJoinPool, and
+ * the threads share one TranspositionTable, so a stack reached again through different
+ * placement orders is looked up rather than searched again. The search deepens one
+ * piece at a time until the budget runs out, and plays the result of the deepest search
+ * that finished.
+ */
+public class ExpectimaxBrain extends MyBrain {
+    public static final int DEFAULT_PREVIEW = 1;
+    public static final int DEFAULT_DEPTH = 3;
+    public static final int DEFAULT_CANDIDATES = 4;
+    public static final long DEFAULT_BUDGET_NANOS = 50_000_000L;
+    public static final int DEFAULT_TABLE_BITS = 16;
+
+    // Bit i is set when a piece of type ordinal i is left in the bag.
+    private static final int FULL_BAG = (1 << Piece.PieceType.values().length) - 1;
+    // Thrown through the search when the budget runs out; it carries no stack trace.
+    private static final RuntimeException TIMEOUT = new RuntimeException("deadline passed", null, false, false) { };
+
+    private final int previewLength;
+    private final int depth;
+    private final int candidates;
+    private final long budgetNanos;
+    private final ForkJoinPool pool;
+    private final Reachability reachability = new Reachability();
+    private final FeatureEvaluator features = new FeatureEvaluator(evaluator.getRequiredFeatures());
+    // The scratch state of each thread searching for this brain, kept across placements and
+    // decisions so the searches don't allocate it again.
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+    // The known pieces after the current one, and the bag the first unknown one is dealt from.
+    private List<Piece> preview = List.of();
+    private int bag = FULL_BAG;
+
+    // Values of searched positions, shared by the threads searching a decision. Keys include
+    // the decision's generation, so entries left from earlier decisions never match.
+    private final TranspositionTable table = new TranspositionTable(DEFAULT_TABLE_BITS);
+    private long generation;
+    // When the current decision started; the budget is measured from here rather than as a
+    // deadline, so a huge budget can't overflow.
+    private long start;
+
+    /**
+     * Creates a brain that uses at most previewLength pieces of the preview, searches up
+     * to depth pieces past the current one, expands only the best candidates placements
+     * of each later piece, and spends about budgetNanos per decision on the given pool, or on
+     * the calling thread if pool is null.
+     */
+    public ExpectimaxBrain(double[] coef, int previewLength, int depth, int candidates, long budgetNanos, ForkJoinPool pool) {
+        this(new LinearEvaluator(coef), previewLength, depth, candidates, budgetNanos, pool);
+    }
+
+    /**
+     * Creates a brain like the one above that scores boards with the given evaluator.
+     */
+    public ExpectimaxBrain(Evaluator evaluator, int previewLength, int depth, int candidates, long budgetNanos, ForkJoinPool pool) {
+        this(evaluator, previewLength, depth, candidates, 0, budgetNanos, pool);
+    }
+
+    /**
+     * Creates a brain like the one above that, past the current piece, ranks every placement
+     * with a {@link SurfaceFilter} first and only scores the best prefilter of them in full,
+     * or all of them if prefilter is 0.
+     */
+    public ExpectimaxBrain(Evaluator evaluator, int previewLength, int depth, int candidates, int prefilter,
+                           long budgetNanos, ForkJoinPool pool) {
+        super(evaluator, null, prefilter);
+        if (previewLength < 0 || depth < 0 || candidates < 1) {
+            throw new IllegalArgumentException("preview and depth can't be negative, and at least 1 candidate is needed");
+        }
+        this.previewLength = previewLength;
+        this.depth = depth;
+        this.candidates = candidates;
+        this.budgetNanos = budgetNanos;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a brain with the default settings, searching on the common pool.
+     */
+    public ExpectimaxBrain(double[] coef) {
+        this(coef, DEFAULT_PREVIEW, DEFAULT_DEPTH, DEFAULT_CANDIDATES, DEFAULT_BUDGET_NANOS, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public void setPreview(List<Piece> preview) {
+        setPreview(preview, List.of());
+    }
+
+    @Override
+    public void setPreview(List<Piece> preview, List<Piece> unseen) {
+        int known = Math.min(previewLength, preview.size());
+        this.preview = List.copyOf(preview.subList(0, known));
+        // The bag of the first piece past the whole preview started this many pieces into it;
+        // pieces of the preview this brain doesn't use go back into the bag they came from.
+        int bagStart = preview.size() - (Piece.PieceType.values().length - unseen.size());
+        bag = 0;
+        if (unseen.isEmpty()) {
+            // Nothing is known about the bag, so any piece can come.
+            bag = FULL_BAG;
+        } else if (known >= bagStart) {
+            for (Piece piece : unseen) {
+                bag |= 1 << piece.getType().ordinal();
+            }
+            for (int i = Math.max(known, bagStart); i < preview.size(); i++) {
+                bag |= 1 << preview.get(i).getType().ordinal();
+            }
+        } else {
+            for (int i = known; i < bagStart; i++) {
+                bag |= 1 << preview.get(i).getType().ordinal();
+            }
+        }
+        if (bag == 0) {
+            bag = FULL_BAG;
+        }
+    }
+
+    @Override
+    Placement bestPlacement(Board currentBoard) {
+        if (currentBoard.getCurrentPiece() == null) {
+            return null;
+        }
+        start = System.nanoTime();
+        generation++;
+
+        // The root placements and what they score on their own, which is the depth 0 search.
+        reachability.compute(currentBoard);
+        int count = reachability.getCount();
+        if (count == 0) {
+            return null;
+        }
+        Board snapshot = currentBoard.testMove(Board.Action.NOTHING);
+        features.reset(snapshot);
+        TetrisPiece[] pieces = new TetrisPiece[count];
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        long[] keys = new long[count];
+        double[] values = new double[count];
+        double[] rewards = new double[count];
+        for (int i = 0; i < count; i++) {
+            pieces[i] = reachability.getPiece(i);
+            xs[i] = reachability.getX(i);
+            ys[i] = reachability.getY(i);
+            keys[i] = Placement.key(pieces[i], xs[i], ys[i]);
+            features.evaluate(pieces[i], xs[i], ys[i]);
+            values[i] = evaluator.score(features);
+            rewards[i] = evaluator.placementScore(features);
+        }
+        long bestKey = best(keys, values);
+
+        for (int d = 1; d <= depth; d++) {
+            int searchDepth = d;
+            double[] deeper = new double[count];
+            if (pool == null) {
+                // Search each placement on the calling thread, as MyBrain does without a pool.
+                try {
+                    for (int i = 0; i < count; i++) {
+                        deeper[i] = searchFrom(snapshot, pieces[i], xs[i], ys[i], rewards[i], searchDepth);
+                    }
+                } catch (RuntimeException ex) {
+                    if (ex != TIMEOUT) {
+                        throw ex;
+                    }
+                    // The budget ran out partway; keep the result of the last full search.
+                    break;
+                }
+            } else {
+                List<Callable<Double>> tasks = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    int index = i;
+                    tasks.add(() -> searchFrom(snapshot, pieces[index], xs[index], ys[index], rewards[index], searchDepth));
+                }
+                try {
+                    List<Future<Double>> results = pool.invokeAll(tasks);
+                    for (int i = 0; i < count; i++) {
+                        deeper[i] = results.get(i).get();
+                    }
+                } catch (InterruptedException ex) {
+                    // Stop searching; keep the result of the last full search.
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() == TIMEOUT) {
+                        // The budget ran out partway; keep the result of the last full search.
+                        break;
+                    }
+                    if (ex.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) ex.getCause();
+                    }
+                    if (ex.getCause() instanceof Error) {
+                        throw (Error) ex.getCause();
+                    }
+                    throw new IllegalStateException("search failed", ex.getCause());
+                }
+            }
+            bestKey = best(keys, deeper);
+        }
+        return pathTo(currentBoard, bestKey);
+    }
+
+    // What a placement of the current piece is worth: the lines it clears plus the expected
+    // value of the next depth pieces after it.
+    private double searchFrom(Board snapshot, TetrisPiece piece, int x, int y, double reward, int depth) {
+        Board child = snapshot.testMove(Board.Action.NOTHING);
+        child.place(piece, x, y, null);
+        return reward + searches.get().expected(child, 0, bag, depth);
+    }
+
+    // The key of the highest value, ties going to the smaller key.
+    private static long best(long[] keys, double[] values) {
+        int best = 0;
+        for (int i = 1; i < keys.length; i++) {
+            if (values[i] > values[best] || (values[i] == values[best] && keys[i] < keys[best])) {
+                best = i;
+            }
+        }
+        return keys[best];
+    }
+
+    // The searches of one thread, with their own scratch state. The candidates of a piece are
+    // copied out before searching deeper, so the same scratch serves every level.
+    private final class Search {
+        private final Reachability reachability = new Reachability();
+        private final FeatureEvaluator features = new FeatureEvaluator(evaluator.getRequiredFeatures());
+        private final SurfaceFilter filter = new SurfaceFilter();
+
+        // What the next depth (at least 1) pieces are expected to be worth on a board.
+        double expected(Board board, int next, int bag, int depth) {
+            double value;
+            if (next < preview.size()) {
+                value = bestPlacing(board, preview.get(next), next + 1, bag, depth);
+            } else {
+                // Every piece left in the bag is equally likely; a new bag is full again.
+                int left = bag == 0 ? FULL_BAG : bag;
+                double sum = 0;
+                int outcomes = 0;
+                for (Piece.PieceType type : Piece.PieceType.values()) {
+                    int bit = 1 << type.ordinal();
+                    if ((left & bit) != 0) {
+                        sum += bestPlacing(board, TetrisPiece.getPiece(type, 0), next + 1, left & ~bit, depth);
+                        outcomes++;
+                    }
+                }
+                value = sum / outcomes;
+            }
+            return value;
+        }
+
+        // The value of the best placement of the piece, coming in at the spawn position.
+        private double bestPlacing(Board board, Piece piece, int next, int bag, int depth) {
+            long key = key(board, piece, next, bag, depth);
+            double known = table.getScore(key);
+            if (!Double.isNaN(known)) {
+                return known;
+            }
+            if (System.nanoTime() - start >= budgetNanos) {
+                throw TIMEOUT;
+            }
+            Point spawn = GameEngine.spawnPosition(board, piece);
+            reachability.compute(board, piece, spawn.x, spawn.y);
+            int count = prefilter > 0 ? filter.select(board, reachability, prefilter) : reachability.getCount();
+            if (count == 0) {
+                // The piece can't come in, so the game is over.
+                table.store(key, -10000);
+                return -10000;
+            }
+            // Score each placement the filter kept on its own, and keep the best few to look further at.
+            TetrisPiece[] pieces = new TetrisPiece[candidates];
+            int[] xs = new int[candidates];
+            int[] ys = new int[candidates];
+            double[] scores = new double[candidates];
+            double[] rewards = new double[candidates];
+            int kept = 0;
+            features.reset(board);
+            for (int n = 0; n < count; n++) {
+                int i = prefilter > 0 ? filter.getIndex(n) : n;
+                TetrisPiece placed = reachability.getPiece(i);
+                features.evaluate(placed, reachability.getX(i), reachability.getY(i));
+                double score = evaluator.score(features);
+                // Insert in order, best first; equal scores keep the order Reachability found them in.
+                int at = kept;
+                while (at > 0 && score > scores[at - 1]) {
+                    at--;
+                }
+                if (at == candidates) {
+                    continue;
+                }
+                int moved = Math.min(kept, candidates - 1) - at;
+                System.arraycopy(pieces, at, pieces, at + 1, moved);
+                System.arraycopy(xs, at, xs, at + 1, moved);
+                System.arraycopy(ys, at, ys, at + 1, moved);
+                System.arraycopy(scores, at, scores, at + 1, moved);
+                System.arraycopy(rewards, at, rewards, at + 1, moved);
+                pieces[at] = placed;
+                xs[at] = reachability.getX(i);
+                ys[at] = reachability.getY(i);
+                scores[at] = score;
+                rewards[at] = evaluator.placementScore(features);
+                kept = Math.min(kept + 1, candidates);
+            }
+            double bestValue = scores[0];
+            if (depth > 1) {
+                bestValue = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < kept; i++) {
+                    Board child = board.testMove(Board.Action.NOTHING);
+                    child.place(pieces[i], xs[i], ys[i], null);
+                    bestValue = Math.max(bestValue, rewards[i] + expected(child, next, bag, depth - 1));
+                }
+            }
+            table.store(key, bestValue);
+            return bestValue;
+        }
+    }
+
+    // A key for a position in the table: the stack, the piece to place, which pieces are
+    // still to come, how deep it is searched and the decision it is searched for.
+    private long key(Board board, Piece piece, int next, int bag, int depth) {
+        long position = ((long) piece.getType().ordinal() << 24) | ((long) next << 16) | ((long) bag << 8) | depth;
+        return board.getHash() ^ TetrisBoard.mix(TetrisBoard.mix(position) + generation);
+    }
+}
@@ -0,0 +1,45 @@
+package assignment;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * The features every {@link FeatureEvaluator} measures, by name, so they can be picked out
+ * with {@link #valueOf(String)} or combined in a {@link LinearEvaluator}.
+ */
+public enum Feature implements FeatureExtractor {
+    HEIGHT_SUM(FeatureEvaluator::getHeightSum, false),
+    MAX_HEIGHT(FeatureEvaluator::getMaxHeight, false),
+    HOLES(FeatureEvaluator::getHoles, false),
+    BUMPINESS(FeatureEvaluator::getBumpiness, false),
+    WELLS(FeatureEvaluator::getWells, false),
+    ROW_TRANSITIONS(FeatureEvaluator::getRowTransitions, false),
+    COLUMN_TRANSITIONS(FeatureEvaluator::getColumnTransitions, false),
+    T_SLOTS(FeatureEvaluator::getTSlots, false),
+    ROWS_CLEARED(FeatureEvaluator::getRowsCleared, true),
+    ERODED_CELLS(FeatureEvaluator::getErodedCells, true);
+
+    private final ToIntFunction<FeatureEvaluator> getter;
+    private final boolean placement;
+
+    Feature(ToIntFunction<FeatureEvaluator> getter, boolean placement) {
+        this.getter = getter;
+        this.placement = placement;
+    }
+
+    @Override
+    public double extract(FeatureEvaluator features) {
+        return getter.applyAsInt(features);
+    }
+
+    @Override
+    public boolean isPlacementFeature() {
+        return placement;
+    }
+
+    @Override
+    public Set<Feature> getRequiredFeatures() {
+        return EnumSet.of(this);
+    }
+}
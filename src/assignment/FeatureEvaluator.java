@@ -0,0 +1,530 @@
+package assignment;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Measures the features of the boards one placement away from a parent board, without
+ * making those boards: column heights, holes, bumpiness, wells, row and column
+ * transitions, T-slots, rows cleared and eroded cells. An {@link Evaluator} turns them
+ * into a score.
+ *
+ * reset measures the parent in a single scan of its row masks, and evaluate then works
+ * out the features of the parent with one more piece placed from the columns and rows
+ * the piece covers. Holes come out of the heights and the number of filled cells, since
+ * every filled cell is below its column's height. A placement that clears rows moves
+ * every row above it, so its rows are compacted and scanned again instead.
+ *
+ * An evaluator can be made to measure only the features an {@link Evaluator} reads; the
+ * bumpiness, wells, transitions and T-slots it isn't asked for are skipped. The rest are
+ * needed for the others and cost next to nothing, so they are always measured. Custom
+ * {@link FeatureExtractor}s can read the board each placement leaves through
+ * {@link #getRowMask(int)}, {@link #getColumnHeight(int)} and the placed piece, without
+ * the board being made.
+ *
+ * An evaluator keeps scratch state between calls and doesn't allocate once it has seen
+ * a board of the given size, so each thread needs its own.
+ */
+public final class FeatureEvaluator {
+    // Which of the features that cost more than the piece's columns to measure are measured.
+    private boolean measureBumpiness;
+    private boolean measureWells;
+    private boolean measureRowTransitions;
+    private boolean measureColumnTransitions;
+    private boolean measureTSlots;
+
+    private Board board;
+    private int width;
+    private int fullRow;
+
+    // The parent board's features.
+    private int[] heights = new int[0];
+    private int filled;
+    private int heightSum;
+    private int bumpiness;
+    private int wells;
+    private int rowTransitions;
+    private int columnTransitions;
+    private int tSlots;
+    private int maxHeight;
+
+    // The features of the last placement evaluated. newHeights only differs from heights
+    // between dirtyLeft and dirtyRight, which are put back before the next placement.
+    private int[] newHeights = new int[0];
+    private int dirtyLeft, dirtyRight = -1;
+    private int newHeightSum;
+    private int newHoles;
+    private int newBumpiness;
+    private int newWells;
+    private int newRowTransitions;
+    private int newColumnTransitions;
+    private int newTSlots;
+    private int newMaxHeight;
+    private int rowsCleared;
+    private int erodedCells;
+    // Which rows of the piece's bounding box the placement filled, bit r for row y + r.
+    private int clearedMask;
+    // The piece the last placement evaluated put down, and where.
+    private TetrisPiece piece;
+    private int pieceX, pieceY;
+
+    // Row masks being scanned, and the features the last scan found in them.
+    private int[] scratch = new int[0];
+    private int scanFilled;
+    private int scanRowTransitions;
+    private int scanColumnTransitions;
+    private int scanTSlots;
+
+    /**
+     * Creates an evaluator that measures every feature.
+     */
+    public FeatureEvaluator() {
+        this(EnumSet.allOf(Feature.class));
+    }
+
+    /**
+     * Creates an evaluator that measures the given features, and skips the others that can
+     * be skipped; reading a feature that wasn't measured throws IllegalStateException.
+     */
+    public FeatureEvaluator(Set<Feature> features) {
+        measureBumpiness = features.contains(Feature.BUMPINESS);
+        measureWells = features.contains(Feature.WELLS);
+        measureRowTransitions = features.contains(Feature.ROW_TRANSITIONS);
+        measureColumnTransitions = features.contains(Feature.COLUMN_TRANSITIONS);
+        measureTSlots = features.contains(Feature.T_SLOTS);
+    }
+
+    /**
+     * Measures the board that later placements are evaluated on. The board must not change
+     * until the next reset.
+     */
+    public void reset(Board board) {
+        this.board = board;
+        width = board.getWidth();
+        fullRow = width == Integer.SIZE ? -1 : (1 << width) - 1;
+        if (heights.length != width) {
+            heights = new int[width];
+            newHeights = new int[width];
+        }
+        if (scratch.length != board.getHeight()) {
+            scratch = new int[board.getHeight()];
+        }
+        heightSum = 0;
+        for (int x = 0; x < width; x++) {
+            heights[x] = board.getColumnHeight(x);
+            heightSum += heights[x];
+        }
+        System.arraycopy(heights, 0, newHeights, 0, width);
+        dirtyLeft = 0;
+        dirtyRight = -1;
+        bumpiness = 0;
+        if (measureBumpiness) {
+            for (int x = 0; x < width - 1; x++) {
+                bumpiness += Math.abs(heights[x] - heights[x + 1]);
+            }
+        }
+        wells = 0;
+        if (measureWells) {
+            for (int x = 0; x < width; x++) {
+                wells += well(heights, x);
+            }
+        }
+        maxHeight = board.getMaxHeight();
+        for (int y = 0; y < maxHeight; y++) {
+            scratch[y] = board.getRowMask(y);
+        }
+        scan(maxHeight);
+        filled = scanFilled;
+        rowTransitions = scanRowTransitions;
+        columnTransitions = scanColumnTransitions;
+        tSlots = scanTSlots;
+    }
+
+    /**
+     * Measures the same board, and the same features, as the given evaluator, copying what
+     * its last reset measured instead of scanning the board again, so threads can each have
+     * their own evaluator for one board at the cost of a single scan.
+     */
+    public void copyFrom(FeatureEvaluator other) {
+        measureBumpiness = other.measureBumpiness;
+        measureWells = other.measureWells;
+        measureRowTransitions = other.measureRowTransitions;
+        measureColumnTransitions = other.measureColumnTransitions;
+        measureTSlots = other.measureTSlots;
+        board = other.board;
+        width = other.width;
+        fullRow = other.fullRow;
+        if (heights.length != width) {
+            heights = new int[width];
+            newHeights = new int[width];
+        }
+        if (scratch.length != other.scratch.length) {
+            scratch = new int[other.scratch.length];
+        }
+        System.arraycopy(other.heights, 0, heights, 0, width);
+        System.arraycopy(heights, 0, newHeights, 0, width);
+        dirtyLeft = 0;
+        dirtyRight = -1;
+        filled = other.filled;
+        heightSum = other.heightSum;
+        bumpiness = other.bumpiness;
+        wells = other.wells;
+        rowTransitions = other.rowTransitions;
+        columnTransitions = other.columnTransitions;
+        tSlots = other.tSlots;
+        maxHeight = other.maxHeight;
+    }
+
+    /**
+     * Works out the features of the board with the piece placed with its bounding box at
+     * (x, y), which must be a place the piece fits. Read them with the getters.
+     */
+    public void evaluate(TetrisPiece piece, int x, int y) {
+        this.piece = piece;
+        pieceX = x;
+        pieceY = y;
+        int[] masks = piece.getRowMasks();
+        int bottom = y + piece.getMinY();
+        int top = y + piece.getMaxY();
+        rowsCleared = 0;
+        clearedMask = 0;
+        int erodedPieceCells = 0;
+        for (int r = piece.getMinY(); r <= piece.getMaxY(); r++) {
+            if ((board.getRowMask(y + r) | shift(masks[r], x)) == fullRow) {
+                rowsCleared++;
+                clearedMask |= 1 << r;
+                erodedPieceCells += Integer.bitCount(masks[r]);
+            }
+        }
+        erodedCells = rowsCleared * erodedPieceCells;
+
+        // The heights of the columns the piece covers, before any rows are cleared; only the
+        // columns the last placement changed need putting back first.
+        if (dirtyRight >= dirtyLeft) {
+            System.arraycopy(heights, dirtyLeft, newHeights, dirtyLeft, dirtyRight - dirtyLeft + 1);
+        }
+        int left = x + piece.getMinX();
+        int right = x + piece.getMaxX();
+        dirtyLeft = left;
+        dirtyRight = right;
+        for (int c = left; c <= right; c++) {
+            int bit = 1 << (c - x);
+            int r = piece.getMaxY();
+            while ((masks[r] & bit) == 0) {
+                r--;
+            }
+            newHeights[c] = Math.max(heights[c], y + r + 1);
+        }
+
+        if (rowsCleared > 0) {
+            evaluateClear(piece, x, y);
+            return;
+        }
+
+        newHeightSum = heightSum;
+        newMaxHeight = maxHeight;
+        for (int c = left; c <= right; c++) {
+            newHeightSum += newHeights[c] - heights[c];
+            newMaxHeight = Math.max(newMaxHeight, newHeights[c]);
+        }
+        newHoles = newHeightSum - (filled + Piece.CELLS);
+        // Only the gaps next to a covered column change, and only the wells beside them.
+        newBumpiness = bumpiness;
+        if (measureBumpiness) {
+            for (int c = Math.max(0, left - 1); c <= Math.min(width - 2, right); c++) {
+                newBumpiness += Math.abs(newHeights[c] - newHeights[c + 1]) - Math.abs(heights[c] - heights[c + 1]);
+            }
+        }
+        newWells = wells;
+        if (measureWells) {
+            for (int c = Math.max(0, left - 1); c <= Math.min(width - 1, right + 1); c++) {
+                newWells += well(newHeights, c) - well(heights, c);
+            }
+        }
+        // Only the piece's rows change, so only their transitions, the transitions into and
+        // out of them, and the T-slots next to them need counting again.
+        newRowTransitions = rowTransitions;
+        if (measureRowTransitions) {
+            for (int row = bottom; row <= top; row++) {
+                if (row < maxHeight) {
+                    newRowTransitions -= transitions(oldRow(row));
+                }
+                newRowTransitions += transitions(newRow(row, piece, x, y));
+            }
+        }
+        newColumnTransitions = columnTransitions;
+        if (measureColumnTransitions) {
+            for (int row = bottom; row <= top + 1; row++) {
+                newColumnTransitions += Integer.bitCount(newRow(row, piece, x, y) ^ newRow(row - 1, piece, x, y))
+                    - Integer.bitCount(oldRow(row) ^ oldRow(row - 1));
+            }
+        }
+        newTSlots = tSlots;
+        if (measureTSlots) {
+            for (int row = Math.max(0, bottom - 2); row <= top + 1; row++) {
+                newTSlots += tSlots(newRow(row - 1, piece, x, y), newRow(row, piece, x, y),
+                        newRow(row + 1, piece, x, y), newRow(row + 2, piece, x, y), row)
+                    - tSlots(oldRow(row - 1), oldRow(row), oldRow(row + 1), oldRow(row + 2), row);
+            }
+        }
+    }
+
+    // Works out the features of a placement that clears rows, from the compacted row masks.
+    private void evaluateClear(TetrisPiece piece, int x, int y) {
+        dirtyLeft = 0;
+        dirtyRight = width - 1;
+        // Each column's new top is its highest cell that isn't in a cleared row, moved down
+        // by the cleared rows below it.
+        newHeightSum = 0;
+        newMaxHeight = 0;
+        for (int c = 0; c < width; c++) {
+            int bit = 1 << c;
+            int row = newHeights[c] - 1;
+            while (row >= 0 && (isCleared(row, y) || (newRow(row, piece, x, y) & bit) == 0)) {
+                row--;
+            }
+            newHeights[c] = row < 0 ? 0 : row + 1 - clearedBelow(row, y);
+            newHeightSum += newHeights[c];
+            newMaxHeight = Math.max(newMaxHeight, newHeights[c]);
+        }
+        newHoles = newHeightSum - (filled + Piece.CELLS - rowsCleared * width);
+        newBumpiness = 0;
+        if (measureBumpiness) {
+            for (int c = 0; c < width - 1; c++) {
+                newBumpiness += Math.abs(newHeights[c] - newHeights[c + 1]);
+            }
+        }
+        newWells = 0;
+        if (measureWells) {
+            for (int c = 0; c < width; c++) {
+                newWells += well(newHeights, c);
+            }
+        }
+        // The compacted rows are kept in scratch for getRowMask.
+        int count = 0;
+        for (int row = 0; count < newMaxHeight; row++) {
+            if (!isCleared(row, y)) {
+                scratch[count++] = newRow(row, piece, x, y);
+            }
+        }
+        scan(newMaxHeight);
+        newRowTransitions = scanRowTransitions;
+        newColumnTransitions = scanColumnTransitions;
+        newTSlots = scanTSlots;
+    }
+
+    // Counts the filled cells, and the transitions and T-slots being measured, of the first
+    // count rows of scratch, the rows above them being empty, in one pass.
+    private void scan(int count) {
+        scanFilled = 0;
+        scanRowTransitions = 0;
+        scanColumnTransitions = 0;
+        scanTSlots = 0;
+        int below = fullRow;
+        for (int row = 0; row <= count; row++) {
+            int mask = row < count ? scratch[row] : 0;
+            if (row < count) {
+                scanFilled += Integer.bitCount(mask);
+                if (measureRowTransitions) {
+                    scanRowTransitions += transitions(mask);
+                }
+            }
+            if (measureColumnTransitions) {
+                scanColumnTransitions += Integer.bitCount(mask ^ below);
+            }
+            if (measureTSlots) {
+                int above = row + 1 < count ? scratch[row + 1] : 0;
+                int twoAbove = row + 2 < count ? scratch[row + 2] : 0;
+                scanTSlots += tSlots(below, mask, above, twoAbove, row);
+            }
+            below = mask;
+        }
+    }
+
+    // The value of a feature that may not be measured, which throws if it isn't.
+    private static int measured(boolean measure, int value, Feature feature) {
+        if (!measure) {
+            throw new IllegalStateException(feature + " isn't measured by this evaluator");
+        }
+        return value;
+    }
+
+    // A row of the parent; the floor below the board counts as a filled row.
+    private int oldRow(int row) {
+        if (row < 0) {
+            return fullRow;
+        }
+        return row < board.getHeight() ? board.getRowMask(row) : 0;
+    }
+
+    // A row of the parent with the piece placed, before rows are cleared.
+    private int newRow(int row, TetrisPiece piece, int x, int y) {
+        int mask = oldRow(row);
+        int r = row - y;
+        if (r >= piece.getMinY() && r <= piece.getMaxY()) {
+            mask |= shift(piece.getRowMasks()[r], x);
+        }
+        return mask;
+    }
+
+    // Moves a row of a piece's bounding box to the board, for a box whose left edge is at x.
+    private static int shift(int mask, int x) {
+        return x >= 0 ? mask << x : mask >>> -x;
+    }
+
+    // Whether the placement fills the given row.
+    private boolean isCleared(int row, int y) {
+        int r = row - y;
+        return r >= 0 && r < Integer.SIZE && (clearedMask & (1 << r)) != 0;
+    }
+
+    // How many cleared rows are below the given row.
+    private int clearedBelow(int row, int y) {
+        int r = row - y;
+        if (r <= 0) {
+            return 0;
+        }
+        return Integer.bitCount(clearedMask & (r >= Integer.SIZE ? -1 : (1 << r) - 1));
+    }
+
+    // A row mask with the walls on either side filled in, moved up a bit so the left wall is bit 0.
+    private long walled(int mask) {
+        return (mask & 0xFFFFFFFFL) << 1 | 1L | 1L << (width + 1);
+    }
+
+    // The number of times a row changes between filled and empty, counting the walls as filled.
+    private int transitions(int mask) {
+        long cells = walled(mask);
+        return Long.bitCount((cells ^ cells >>> 1) & ((1L << (width + 1)) - 1));
+    }
+
+    // The number of T-slots with their stem in row y: places a T pointing down fits, standing
+    // on a filled cell, with at least three of the four cells diagonal to its centre filled,
+    // so that it can only get in by spinning.
+    private int tSlots(int below, int row, int above, int twoAbove, int y) {
+        if (y + 1 >= board.getHeight()) {
+            return 0;
+        }
+        long stem = walled(row);
+        long centre = walled(above);
+        long corners = walled(twoAbove);
+        long lowLeft = stem << 1, lowRight = stem >>> 1;
+        long highLeft = corners << 1, highRight = corners >>> 1;
+        long threeCorners = (lowLeft & lowRight & (highLeft | highRight)) | (highLeft & highRight & (lowLeft | lowRight));
+        long slots = ~stem & walled(below) & ~centre & ~(centre << 1) & ~(centre >>> 1) & threeCorners;
+        return Long.bitCount(slots & (fullRow & 0xFFFFFFFFL) << 1);
+    }
+
+    // How far a column is below both of its neighbours, counting the walls as infinitely high.
+    private int well(int[] heights, int x) {
+        int left = x == 0 ? Integer.MAX_VALUE : heights[x - 1];
+        int right = x == width - 1 ? Integer.MAX_VALUE : heights[x + 1];
+        int side = Math.min(left, right);
+        return side == Integer.MAX_VALUE ? 0 : Math.max(0, side - heights[x]);
+    }
+
+    /**
+     * Returns the width of the board the features are measured on.
+     */
+    public int getBoardWidth() { return width; }
+
+    /**
+     * Returns the height of the board the features are measured on.
+     */
+    public int getBoardHeight() { return board.getHeight(); }
+
+    /**
+     * Returns the piece the last placement evaluated put down.
+     */
+    public TetrisPiece getPlacedPiece() { return piece; }
+
+    /**
+     * Returns the x of the bounding box of the piece the last placement evaluated put down.
+     */
+    public int getPlacedX() { return pieceX; }
+
+    /**
+     * Returns the y of the bounding box of the piece the last placement evaluated put down.
+     */
+    public int getPlacedY() { return pieceY; }
+
+    /**
+     * Returns the lowest row the last placement evaluated filled a cell in, before any rows
+     * were cleared.
+     */
+    public int getLandingRow() { return pieceY + piece.getMinY(); }
+
+    /**
+     * Returns the row mask of the given row of the board the last placement evaluated
+     * leaves, after its rows are cleared: bit x is set if column x is filled.
+     */
+    public int getRowMask(int y) {
+        if (rowsCleared > 0) {
+            return y < newMaxHeight ? scratch[y] : 0;
+        }
+        return y < 0 ? 0 : newRow(y, piece, pieceX, pieceY);
+    }
+
+    /**
+     * Returns the height of the given column after the last placement evaluated.
+     */
+    public int getColumnHeight(int x) { return newHeights[x]; }
+
+    /**
+     * Returns the sum of the column heights after the last placement evaluated.
+     */
+    public int getHeightSum() { return newHeightSum; }
+
+    /**
+     * Returns the height of the tallest column after the last placement evaluated.
+     */
+    public int getMaxHeight() { return newMaxHeight; }
+
+    /**
+     * Returns the number of empty cells below the tops of their columns after the last
+     * placement evaluated.
+     */
+    public int getHoles() { return newHoles; }
+
+    /**
+     * Returns the sum of the height differences between neighbouring columns after the last
+     * placement evaluated.
+     */
+    public int getBumpiness() { return measured(measureBumpiness, newBumpiness, Feature.BUMPINESS); }
+
+    /**
+     * Returns the sum of how far each column is below both of its neighbours (the walls
+     * count as infinitely high) after the last placement evaluated.
+     */
+    public int getWells() { return measured(measureWells, newWells, Feature.WELLS); }
+
+    /**
+     * Returns the number of times the rows below the top of the stack change between filled
+     * and empty, counting the walls as filled, after the last placement evaluated.
+     */
+    public int getRowTransitions() { return measured(measureRowTransitions, newRowTransitions, Feature.ROW_TRANSITIONS); }
+
+    /**
+     * Returns the number of times the columns change between filled and empty going up from
+     * the floor, which counts as filled, after the last placement evaluated.
+     */
+    public int getColumnTransitions() { return measured(measureColumnTransitions, newColumnTransitions, Feature.COLUMN_TRANSITIONS); }
+
+    /**
+     * Returns the number of places a T pointing down fits on a filled cell with at least three
+     * of the cells diagonal to its centre filled, so it could only get in by spinning, after
+     * the last placement evaluated.
+     */
+    public int getTSlots() { return measured(measureTSlots, newTSlots, Feature.T_SLOTS); }
+
+    /**
+     * Returns the number of rows the last placement evaluated clears.
+     */
+    public int getRowsCleared() { return rowsCleared; }
+
+    /**
+     * Returns the rows the last placement evaluated clears times the number of the piece's
+     * own cells that were cleared with them.
+     */
+    public int getErodedCells() { return erodedCells; }
+}
@@ -0,0 +1,36 @@
+package assignment;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Reads one feature of a placement out of a {@link FeatureEvaluator}. The evaluator
+ * measures the features in the same pass, so any number of extractors can be combined
+ * without scanning the board again for each one. The built in ones are the constants of
+ * {@link Feature}; a new one can be worked out from the board the placement leaves, which
+ * the evaluator exposes through its row masks, column heights and placed piece.
+ */
+public interface FeatureExtractor {
+
+    /**
+     * Returns the feature's value for the last placement the features were evaluated for.
+     */
+    double extract(FeatureEvaluator features);
+
+    /**
+     * Returns true if the feature belongs to the placement, like the rows it clears, rather
+     * than to the board it leaves.
+     */
+    default boolean isPlacementFeature() {
+        return false;
+    }
+
+    /**
+     * Returns the built in features this extractor reads, so an evaluator can skip measuring
+     * the others. By default that is all of them; an extractor that only reads the board the
+     * placement leaves can return an empty set.
+     */
+    default Set<Feature> getRequiredFeatures() {
+        return EnumSet.allOf(Feature.class);
+    }
+}
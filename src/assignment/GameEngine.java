@@ -0,0 +1,201 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Plays a game of tetris with a brain and no GUI or timer. This runs the same
+ * spawn, brain, move, place and game-over loop as JTetris, but as fast as the
+ * brain can decide, so many games can be simulated on a headless machine.
+ */
+public class GameEngine {
+    // The size of the playing area in blocks, and the extra rows above it that pieces
+    // spawn in; a piece that locks with any block up there ends the game.
+    public static final int WIDTH = 10;
+    public static final int HEIGHT = 20;
+    public static final int TOP_SPACE = 4;
+    // A piece that has taken this many actions without being placed is dropped where
+    // it is, so a brain that stops making progress can't stall the game forever.
+    public static final int MAX_ACTIONS_PER_PIECE = 1000;
+    // How many of the upcoming pieces brains are told about.
+    public static final int PREVIEW_SIZE = 5;
+
+    private final Board board;
+    private final PieceBag bag;
+    private final Brain brain;
+    // The most pieces to play before stopping, or 0 for no limit.
+    private final int maxPieces;
+
+    // State of the game
+    private boolean gameOn;
+    private boolean toppedOut;
+    private int pieces;
+    private int lines;
+    private int actions;
+    private int pieceActions;
+
+    /**
+     * Creates a game on a standard sized board, dealing pieces from a bag
+     * shuffled by the given random generator, and puts the first piece into play.
+     */
+    public GameEngine(Brain brain, Random random, int maxPieces) {
+        this.brain = brain;
+        this.bag = new PieceBag(random);
+        this.maxPieces = maxPieces;
+        board = new TetrisBoard(WIDTH, HEIGHT + TOP_SPACE);
+        gameOn = true;
+        addNewPiece();
+    }
+
+    /**
+     * Returns where a new piece should be put on the board: centered, with the bottom of
+     * its bounding box at the top of the playing area.
+     */
+    public static Point spawnPosition(Board board, Piece piece) {
+        return new Point(board.getWidth() / 2 - piece.getWidth() / 2, board.getHeight() - TOP_SPACE);
+    }
+
+    /**
+     * Asks the brain for one action and applies it, placing a new piece if the current
+     * one was placed. Returns true while the game is still going.
+     */
+    public boolean step() {
+        if (!gameOn) {
+            return false;
+        }
+
+        Board.Action verb = pieceActions < MAX_ACTIONS_PER_PIECE ? brain.nextMove(board) : Board.Action.DROP;
+        actions++;
+        pieceActions++;
+
+        Board.Result result = board.move(verb);
+        switch (result) {
+          case SUCCESS:
+          case OUT_BOUNDS:
+            // The board is responsible for staying in a good state
+            break;
+          case PLACE:
+            lines += board.getRowsCleared();
+            if (board.getMaxHeight() > board.getHeight() - TOP_SPACE) {
+                gameOn = false;
+                toppedOut = true;
+            } else {
+                addNewPiece();
+            }
+            break;
+          case NO_PIECE:
+            // The piece went into the hold slot, or there was none, so the next one comes in
+            addNewPiece();
+            break;
+        }
+        return gameOn;
+    }
+
+    /**
+     * Plays the game until it ends and returns how it went.
+     */
+    public GameStats run() {
+        long startTime = System.nanoTime();
+        while (step()) {
+            // keep playing
+        }
+        return new GameStats(pieces, lines, actions, System.nanoTime() - startTime, toppedOut);
+    }
+
+    // Puts the next piece from the bag into play, ending the game if the piece limit
+    // has been reached or the piece doesn't fit.
+    private void addNewPiece() {
+        if (maxPieces > 0 && pieces >= maxPieces) {
+            gameOn = false;
+            return;
+        }
+        Piece nextPiece = bag.next();
+        try {
+            board.nextPiece(nextPiece, spawnPosition(board, nextPiece));
+        } catch (IllegalArgumentException ex) {
+            gameOn = false;
+            toppedOut = true;
+            return;
+        }
+        pieces++;
+        pieceActions = 0;
+        brain.setPreview(bag.peek(PREVIEW_SIZE), bag.unseen(PREVIEW_SIZE));
+    }
+
+    /**
+     * Returns the board the game is being played on.
+     */
+    public Board getBoard() { return board; }
+
+    /**
+     * Returns the number of pieces that have been put into play so far.
+     */
+    public int getPieces() { return pieces; }
+
+    /**
+     * Returns true until the game has ended.
+     */
+    public boolean isGameOn() { return gameOn; }
+
+    /**
+     * Plays the given number of games, game i shuffling its pieces with seed + i, spread
+     * across all available cores. Each game gets its own brain from the supplier.
+     */
+    public static GameStats[] simulate(Supplier<Brain> brains, int games, int maxPieces, long seed) {
+        return IntStream.range(0, games)
+            .parallel()
+            .mapToObj(i -> new GameEngine(brains.get(), new Random(seed + i), maxPieces).run())
+            .toArray(GameStats[]::new);
+    }
+
+    /**
+     * Runs a batch of headless games with MyBrain, with BeamBrain when a beam width is
+     * given, or with ExpectimaxBrain when the width is "expectimax", and prints a summary.
+     *
+     * Usage: GameEngine [games] [max pieces per game, 0 for no limit] [seed]
+     *                   [beam width or expectimax] [search depth] [budget ms per decision]
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int maxPieces = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        boolean expectimax = args.length > 3 && args[3].equals("expectimax");
+        int width = args.length > 3 && !expectimax ? Integer.parseInt(args[3]) : 0;
+        int depth = args.length > 4 ? Integer.parseInt(args[4])
+            : expectimax ? ExpectimaxBrain.DEFAULT_DEPTH : BeamBrain.DEFAULT_DEPTH;
+        long budget = args.length > 5 ? Long.parseLong(args[5]) * 1_000_000
+            : expectimax ? ExpectimaxBrain.DEFAULT_BUDGET_NANOS : BeamBrain.DEFAULT_BUDGET_NANOS;
+        Supplier<Brain> brains;
+        if (expectimax) {
+            brains = () -> new ExpectimaxBrain(MyBrain.DEFAULT_COEF, ExpectimaxBrain.DEFAULT_PREVIEW, depth,
+                ExpectimaxBrain.DEFAULT_CANDIDATES, budget, ForkJoinPool.commonPool());
+        } else if (width > 0) {
+            brains = () -> new BeamBrain(MyBrain.DEFAULT_COEF, width, depth, budget);
+        } else {
+            brains = () -> new MyBrain(MyBrain.DEFAULT_COEF);
+        }
+
+        long startTime = System.nanoTime();
+        GameStats[] results = simulate(brains, games, maxPieces, seed);
+        long elapsed = System.nanoTime() - startTime;
+
+        long pieces = 0, lines = 0;
+        int minPieces = Integer.MAX_VALUE, maxPlayed = 0, toppedOut = 0;
+        for (GameStats stats : results) {
+            pieces += stats.getPieces();
+            lines += stats.getLines();
+            minPieces = Math.min(minPieces, stats.getPieces());
+            maxPlayed = Math.max(maxPlayed, stats.getPieces());
+            if (stats.isToppedOut()) {
+                toppedOut++;
+            }
+        }
+        System.out.println(games + " games in " + elapsed / 1_000_000 + " ms ("
+            + Math.round(games * 60e9 / elapsed) + " games/min), " + toppedOut + " topped out");
+        System.out.println("pieces: mean " + pieces / (double) games + ", min " + minPieces + ", max " + maxPlayed);
+        System.out.println("lines: mean " + lines / (double) games);
+    }
+}
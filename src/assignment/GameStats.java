@@ -0,0 +1,52 @@
+package assignment;
+
+/**
+ * The outcome of a single game played by a {@link GameEngine}.
+ */
+public final class GameStats {
+    private final int pieces;
+    private final int lines;
+    private final int actions;
+    private final long durationNanos;
+    private final boolean toppedOut;
+
+    public GameStats(int pieces, int lines, int actions, long durationNanos, boolean toppedOut) {
+        this.pieces = pieces;
+        this.lines = lines;
+        this.actions = actions;
+        this.durationNanos = durationNanos;
+        this.toppedOut = toppedOut;
+    }
+
+    /**
+     * Returns the number of pieces that were put into play.
+     */
+    public int getPieces() { return pieces; }
+
+    /**
+     * Returns the total number of rows cleared.
+     */
+    public int getLines() { return lines; }
+
+    /**
+     * Returns the number of actions the brain took.
+     */
+    public int getActions() { return actions; }
+
+    /**
+     * Returns how long the game took to play, in nanoseconds.
+     */
+    public long getDurationNanos() { return durationNanos; }
+
+    /**
+     * Returns true if the game ended because the stack got too high, and false if it
+     * was stopped by a piece limit.
+     */
+    public boolean isToppedOut() { return toppedOut; }
+
+    @Override
+    public String toString() {
+        return "pieces=" + pieces + " lines=" + lines + " actions=" + actions
+            + " ms=" + durationNanos / 1_000_000 + (toppedOut ? " (topped out)" : "");
+    }
+}
@@ -6,8 +6,6 @@ import java.util.*;
 import java.awt.event.*;
 import javax.swing.event.*;
 
-import assignment.Piece.PieceType;
-
 
 /**
  * JTetris presents a tetris game in a window.
@@ -18,15 +16,15 @@ import assignment.Piece.PieceType;
 public class JTetris extends JComponent {
     private static final long serialVersionUID = 1L;
     // size of the board in blocks
-    public static final int WIDTH = 10;
-    public static final int HEIGHT = 20;
+    public static final int WIDTH = GameEngine.WIDTH;
+    public static final int HEIGHT = GameEngine.HEIGHT;
 
     public static final int PIXELS = 16;
 
     // Extra blocks at the top for pieces to start.
     // If a piece is sticking up into this area
     // when it has landed -- game over!
-    public static final int TOP_SPACE = 4;
+    public static final int TOP_SPACE = GameEngine.TOP_SPACE;
 
     /**
      * Creates a Window,
@@ -88,6 +86,8 @@ public class JTetris extends JComponent {
     protected int count;        // how many pieces played so far
     protected long startTime;    // used to measure elapsed time
     protected Random random;    // the random generator for new pieces
+    protected PieceBag bag;     // deals the pieces, shuffled by random
+    protected Brain brain;      // plans each piece once and plays it out over several ticks
 
     // Controls
     protected JLabel countLabel;
@@ -100,15 +100,7 @@ public class JTetris extends JComponent {
     public final int DELAY = 400;    // milliseconds per tick
 
     // The 7 canonical tetris pieces.
-    public static final Piece[] PIECES = new Piece[] {
-        new TetrisPiece(PieceType.STICK),
-        new TetrisPiece(PieceType.SQUARE),
-        new TetrisPiece(PieceType.T),
-        new TetrisPiece(PieceType.LEFT_L),
-        new TetrisPiece(PieceType.RIGHT_L),
-        new TetrisPiece(PieceType.LEFT_DOG),
-        new TetrisPiece(PieceType.RIGHT_DOG)
-    };
+    public static final Piece[] PIECES = PieceBag.PIECES;
 
     JTetris() {
         super();
@@ -196,6 +188,8 @@ public class JTetris extends JComponent {
         gameOn = true;
 
         random = new Random(); // diff seq each game
+        bag = new PieceBag(random);
+        brain = new MyBrain(MyBrain.DEFAULT_COEF);
 
         enableButtons();
         timeLabel.setText(" ");
@@ -225,24 +219,19 @@ public class JTetris extends JComponent {
         timeLabel.setText(Double.toString(delta/100.0) + " seconds");
     }
 
-    static ArrayList<Piece> randomizedPieces = new ArrayList<>();
     /**
      * Adds a new random piece to the board.
      */
     public void addNewPiece() {
         count++;
-        if(randomizedPieces.isEmpty())
-        {
-            randomizedPieces = new ArrayList<Piece>(Arrays.asList(PIECES.clone()));
-            Collections.shuffle(randomizedPieces);
-        }
-        Piece nextPiece = randomizedPieces.remove(0);
+        Piece nextPiece = bag.next();
         try {
-            board.nextPiece(nextPiece, new Point(board.getWidth() / 2 - nextPiece.getWidth() / 2, HEIGHT));
+            board.nextPiece(nextPiece, GameEngine.spawnPosition(board, nextPiece));
         } catch(IllegalArgumentException ex) {
             stopGame();
             return;
         }
+        brain.setPreview(bag.peek(GameEngine.PREVIEW_SIZE), bag.unseen(GameEngine.PREVIEW_SIZE));
         countLabel.setText(Integer.toString(count));
     }
 
@@ -257,11 +246,7 @@ public class JTetris extends JComponent {
             return;
         }
 
-        //array of coefficients used for scoring
-        double[] coef = new double[]{-0.510066, 0.760666, -0.35663, -0.18448};
-        MyBrain myBrain = new MyBrain(coef);
-
-        Board.Result result = board.move(myBrain.nextMove(board));
+        Board.Result result = board.move(brain.nextMove(board));
         switch (result) {
           case SUCCESS:
           case OUT_BOUNDS:
@@ -338,15 +323,10 @@ public class JTetris extends JComponent {
         final int bWidth = board.getWidth();
         final int bHeight = board.getHeight();
 
-        // Keep a set of the piece positions, so they can be rendered specially.
-        Set<Point> currentPiecePositions = new HashSet<>();
+        // Keep the piece's rows and position, so its blocks can be rendered specially.
         Piece currentPiece = board.getCurrentPiece();
-        if(currentPiece != null) {
-            Point position = board.getCurrentPiecePosition();
-            for(Point offset : currentPiece.getBody()) {
-                currentPiecePositions.add(new Point(position.x + offset.x, position.y + offset.y));
-            }
-        }
+        int[] pieceRows = currentPiece == null ? new int[0] : currentPiece.getRowMasks();
+        Point piecePosition = currentPiece == null ? new Point() : board.getCurrentPiecePosition();
 
         // Loop through and draw all the blocks: left-right, bottom-top
         for (int x = 0; x < bWidth; x++) {
@@ -367,7 +347,9 @@ public class JTetris extends JComponent {
                 Piece.PieceType pieceType = board.getGrid(x, y);
                 
                 // Special case if this position is part of the currently active piece.
-                if(currentPiecePositions.contains(new Point(x, y))) pieceType = currentPiece.getType();
+                int pieceX = x - piecePosition.x, pieceY = y - piecePosition.y;
+                if(pieceY >= 0 && pieceY < pieceRows.length && pieceX >= 0 && pieceX < Integer.SIZE
+                        && (pieceRows[pieceY] >>> pieceX & 1) != 0) pieceType = currentPiece.getType();
 
                 if (pieceType != null) {
                     // +1 to leave a white border
@@ -0,0 +1,73 @@
+package assignment;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Scores a placement with a weighted sum of features. A placement that leaves the stack
+ * within 4 rows of the top scores -10000, and every other score is offset by 100000 so it
+ * is higher than that.
+ */
+public final class LinearEvaluator implements Evaluator {
+    /**
+     * The features MyBrain's coefficients weigh, in order.
+     */
+    public static final Feature[] DEFAULT_FEATURES = {
+        Feature.HEIGHT_SUM, Feature.ROWS_CLEARED, Feature.HOLES, Feature.BUMPINESS
+    };
+
+    private final FeatureExtractor[] features;
+    private final double[] weights;
+    // The features the extractors read, and the max height the top-out rule reads.
+    private final Set<Feature> required = EnumSet.of(Feature.MAX_HEIGHT);
+
+    /**
+     * Creates an evaluator that weighs the given features by the weights at the same index.
+     */
+    public LinearEvaluator(FeatureExtractor[] features, double[] weights) {
+        if (features.length != weights.length) {
+            throw new IllegalArgumentException(features.length + " features but " + weights.length + " weights");
+        }
+        this.features = features.clone();
+        this.weights = weights.clone();
+        for (FeatureExtractor feature : features) {
+            required.addAll(feature.getRequiredFeatures());
+        }
+    }
+
+    /**
+     * Creates an evaluator that weighs the default features (height sum, rows cleared, holes
+     * and bumpiness) by the given weights.
+     */
+    public LinearEvaluator(double[] weights) {
+        this(DEFAULT_FEATURES, weights);
+    }
+
+    @Override
+    public double score(FeatureEvaluator f) {
+        if (f.getMaxHeight() > f.getBoardHeight() - 4) {
+            return -10000;
+        }
+        double score = 0;
+        for (int i = 0; i < features.length; i++) {
+            score += weights[i] * features[i].extract(f);
+        }
+        return score + 100000;
+    }
+
+    @Override
+    public double placementScore(FeatureEvaluator f) {
+        double score = 0;
+        for (int i = 0; i < features.length; i++) {
+            if (features[i].isPlacementFeature()) {
+                score += weights[i] * features[i].extract(f);
+            }
+        }
+        return score;
+    }
+
+    @Override
+    public Set<Feature> getRequiredFeatures() {
+        return EnumSet.copyOf(required);
+    }
+}
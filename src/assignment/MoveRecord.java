@@ -0,0 +1,55 @@
+package assignment;
+
+/**
+ * Everything a board needs to take back a single move, filled in by
+ * {@link Board#move(Board.Action, MoveRecord)} and {@link Board#place(Piece, int, int, MoveRecord)}
+ * and consumed by {@link Board#undo(MoveRecord)}.
+ *
+ * A record can be reused for any number of moves, so a search can keep one record per depth
+ * and walk the tree on a single board without allocating.
+ */
+public final class MoveRecord {
+    // The current piece and its position before the move (null if there was none).
+    TetrisPiece piece;
+    int x, y;
+
+    // The held piece before the move, and whether the current piece had been swapped with it.
+    TetrisPiece heldPiece;
+    boolean holdUsed;
+    // The column the last piece given to the board was centered on, and the row it was put at.
+    int spawnX, spawnY;
+
+    // The last action, result and rows cleared reported before the move.
+    Board.Action lastAction;
+    Board.Result lastResult;
+    int rowsCleared;
+    long lastClearedRows;
+
+    // The stack measurements before the move.
+    int maxHeight;
+    long stackHash;
+
+    // The piece the move locked into the stack and where it was locked, or null if nothing was locked.
+    TetrisPiece lockedPiece;
+    int lockedX, lockedY;
+    // The heights the locked piece changed, from before it locked: those of the columns it covers,
+    // or of every column if it cleared rows. Only columnFrom to columnTo are set.
+    int[] columnHeights;
+    int columnFrom, columnTo;
+
+    // The rows the move cleared, by their index before clearing, from the bottom up, along with
+    // the piece types that filled them. A single piece can clear at most four rows.
+    int clearedCount;
+    final int[] clearedRows = new int[4];
+    final byte[][] clearedTypes = new byte[4][];
+
+    /**
+     * Returns the number of rows cleared by the recorded move.
+     */
+    public int getClearedCount() { return clearedCount; }
+
+    /**
+     * Returns the piece the recorded move locked into the stack, or null if it did not lock one.
+     */
+    public Piece getLockedPiece() { return lockedPiece; }
+}
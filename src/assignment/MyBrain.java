@@ -1,51 +1,308 @@
-package assignment;
-
-import java.util.ArrayList;
-
-public class MyBrain implements Brain
-{
-    private static int rotations;
-    //array of coefficients used for scoring
-    double[] coef;
-    MyBrain(double[] a)
-    {
-        coef = a;
-    }
-    @Override
-    public Board.Action nextMove(Board currentBoard)
-    {
-        double bestScore = Double.MIN_VALUE;
-        int bestIndex = 0;
-
-        //make a brain helper and new board
-        BrainHelper brainHelper = new BrainHelper(coef);
-        Board testBoard = currentBoard.testMove(Board.Action.NOTHING);
-        //array to keep track of scores
-        double[] score = new double[4];
-        ArrayList<Board.Action> actions = new ArrayList<>();
-        //use the brain helper to get the best move and score for that board, then rotate the piece and recalculate
-        for(int i = 0; i < 4; i++)
-        {
-            score[i] = brainHelper.bestScore(testBoard);
-            actions.add(brainHelper.nextMove(testBoard));
-            testBoard.move(Board.Action.CLOCKWISE);
-        }
-        //find the best score
-        for(int i = 0; i < 4; i++)
-        {
-            if(bestScore < score[i])
-            {
-                bestScore = score[i];
-                bestIndex = i;
-            }
-        }
-        //bestIndex is also the number of rotations needed
-        rotations = bestIndex;
-        while(rotations > 0)
-        {
-            rotations--;
-            return Board.Action.CLOCKWISE;
-        }
-        return actions.get(bestIndex);
-    }
-}
+package assignment;
+
+import java.awt.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class MyBrain implements Brain
+{
+    //hand-picked coefficients for height sum, rows cleared, holes and bumpiness
+    public static final double[] DEFAULT_COEF = new double[]{-0.510066, 0.760666, -0.35663, -0.18448};
+    //set in the keys of placements of the piece a HOLD brings in; far above any placement key, so
+    //on equal scores placing the current piece wins
+    private static final long HOLD_KEY = 1L << 62;
+    //scores each candidate from its features
+    final Evaluator evaluator;
+    //finds every lock position of the current piece, including rotations, tucks and spins
+    private final Reachability reachability = new Reachability();
+    //and of the piece a HOLD would bring in: the held piece, or the next one if nothing is held
+    private final Reachability holdReachability = new Reachability();
+    //the first piece of the preview, which a HOLD brings in when nothing is held yet
+    private Piece next;
+    //finds the path to the chosen one
+    private final PlacementGenerator generator = new PlacementGenerator();
+    //pool to score candidates on, or null to score them all on the calling thread
+    private final ForkJoinPool pool;
+    //how many candidates the surface filter passes on to be scored in full, or 0 to score them all
+    final int prefilter;
+    private final SurfaceFilter filter = new SurfaceFilter();
+    private final SurfaceFilter holdFilter = new SurfaceFilter();
+    //the features of the board being decided on, measured once per decision; candidates are
+    //scored with these on the calling thread, and with a copy of them on each pool worker
+    private final FeatureEvaluator features;
+    private final ThreadLocal<WorkerFeatures> workerFeatures = ThreadLocal.withInitial(WorkerFeatures::new);
+    //counts decisions, so a worker can tell whether its copy is of the current board
+    private long decision;
+    //the placement being worked towards, and how many of its actions have been returned
+    private Placement plan;
+    private int step;
+    //where the piece should be if the last action went as expected; any other state means replanning
+    private Board expectedBoard;
+    private Piece expectedPiece;
+    private int expectedX, expectedY, expectedHeight;
+
+    MyBrain(double[] a)
+    {
+        this(new LinearEvaluator(a), null);
+    }
+
+    MyBrain(double[] a, ForkJoinPool pool)
+    {
+        this(new LinearEvaluator(a), pool);
+    }
+
+    //scores candidates with the given evaluator, in parallel on the given pool if there is one;
+    //the chosen move is the same as the sequential brain's, since ties are broken by key rather
+    //than by which thread finished first
+    MyBrain(Evaluator evaluator, ForkJoinPool pool)
+    {
+        this(evaluator, pool, 0);
+    }
+
+    //as above, but only the prefilter candidates the surface filter ranks best are scored in full;
+    //SurfaceFilter.main measures how often that keeps the one a full scoring would have chosen
+    MyBrain(Evaluator evaluator, ForkJoinPool pool, int prefilter)
+    {
+        if(prefilter < 0)
+        {
+            throw new IllegalArgumentException("prefilter can't be negative");
+        }
+        this.evaluator = evaluator;
+        this.pool = pool;
+        //measure only the features the evaluator reads
+        features = new FeatureEvaluator(evaluator.getRequiredFeatures());
+        this.prefilter = prefilter;
+    }
+
+    @Override
+    public void setPreview(List<Piece> preview)
+    {
+        next = preview.isEmpty() ? null : preview.get(0);
+    }
+
+    @Override
+    public Board.Action nextMove(Board currentBoard)
+    {
+        //plan once per piece, and replay the path for as long as the board follows it
+        if(plan == null || !isExpected(currentBoard))
+        {
+            plan = bestPlacement(currentBoard);
+            step = 0;
+        }
+        if(plan == null)
+        {
+            expectedBoard = null;
+            return Board.Action.NOTHING;
+        }
+        Board.Action action = plan.getPath()[step++];
+        //remember where the action leaves the piece, so the next call can tell whether to go on
+        Board next = currentBoard.testMove(action);
+        Point position = next.getCurrentPiecePosition();
+        if(position == null || step == plan.getPath().length)
+        {
+            plan = null;
+        }
+        else
+        {
+            expectedBoard = currentBoard;
+            expectedPiece = next.getCurrentPiece();
+            expectedX = position.x;
+            expectedY = position.y;
+            expectedHeight = currentBoard.getMaxHeight();
+        }
+        return action;
+    }
+
+    //whether the board is the one the plan was made for, with the piece where the last action
+    //should have left it
+    private boolean isExpected(Board currentBoard)
+    {
+        Point position = currentBoard.getCurrentPiecePosition();
+        return currentBoard == expectedBoard && position != null
+                && currentBoard.getCurrentPiece() == expectedPiece
+                && position.x == expectedX && position.y == expectedY
+                && currentBoard.getMaxHeight() == expectedHeight;
+    }
+
+    //scores every reachable placement of the current piece, and of the piece holding it would
+    //bring in, and returns the best one, or null if there is no current piece; holding is
+    //returned as a placement whose path is just HOLD, and the piece is planned for again once
+    //it is in play
+    Placement bestPlacement(Board currentBoard)
+    {
+        //find where the piece can lock with whole-row mask operations, without tracking paths
+        reachability.compute(currentBoard);
+        //rank them all by the surface first if only the best few are to be scored in full
+        int count = prefilter > 0 ? filter.select(currentBoard, reachability, prefilter) : reachability.getCount();
+        int holdCount = 0;
+        Piece alternative = holdPiece(currentBoard);
+        if(alternative != null)
+        {
+            //a held piece comes back centered where the board was given its current piece, while
+            //the next piece is given to the board at the engine's spawn position
+            Point spawn = currentBoard.getHeldPiece() != null ? currentBoard.getSpawnPosition(alternative)
+                : GameEngine.spawnPosition(currentBoard, alternative);
+            holdReachability.compute(currentBoard, alternative, spawn.x, spawn.y);
+            holdCount = prefilter > 0 ? holdFilter.select(currentBoard, holdReachability, prefilter) : holdReachability.getCount();
+        }
+        //both pieces go on the same stack, so they are scored in the same pass, from the same
+        //measurement of it
+        features.reset(currentBoard);
+        decision++;
+        ScoreTask task = new ScoreTask(count, 0, count + holdCount);
+        Best best = pool == null ? task.compute() : pool.invoke(task);
+        if(best == null)
+        {
+            return null;
+        }
+        if((best.key & HOLD_KEY) != 0)
+        {
+            return new Placement(best.piece, best.x, best.y, new Board.Action[]{Board.Action.HOLD});
+        }
+        //only the winner needs a path
+        return pathTo(currentBoard, best.key);
+    }
+
+    //the piece a HOLD would bring into play, or null if holding isn't possible or wouldn't change
+    //the piece
+    private Piece holdPiece(Board currentBoard)
+    {
+        if(!currentBoard.canHold())
+        {
+            return null;
+        }
+        Piece alternative = currentBoard.getHeldPiece() != null ? currentBoard.getHeldPiece() : next;
+        if(alternative == null || alternative.getType() == currentBoard.getCurrentPiece().getType())
+        {
+            return null;
+        }
+        return alternative;
+    }
+
+    //finds the way to the placement of the current piece with the given key, or null if it
+    //can't be reached
+    Placement pathTo(Board currentBoard, long key)
+    {
+        for(Placement placement : generator.generate(currentBoard))
+        {
+            if(placement.getKey() == key)
+            {
+                return placement;
+            }
+        }
+        return null;
+    }
+
+    //this thread's copy of the features of the board being decided on, copied from features the
+    //first time the thread scores candidates for the current decision
+    private FeatureEvaluator workerFeatures()
+    {
+        WorkerFeatures worker = workerFeatures.get();
+        if(worker.decision != decision)
+        {
+            worker.features.copyFrom(features);
+            worker.decision = decision;
+        }
+        return worker.features;
+    }
+
+    //a pool worker's own evaluator, and the decision it was last copied for
+    private static final class WorkerFeatures
+    {
+        final FeatureEvaluator features = new FeatureEvaluator();
+        long decision;
+    }
+
+    //the best score and key seen in some range of candidates, and where that candidate is
+    private static final class Best
+    {
+        final double score;
+        final long key;
+        final TetrisPiece piece;
+        final int x, y;
+
+        Best(double score, long key, TetrisPiece piece, int x, int y)
+        {
+            this.score = score;
+            this.key = key;
+            this.piece = piece;
+            this.x = x;
+            this.y = y;
+        }
+
+        //same order as the scoring loop: ties go to the smaller key, so the winner doesn't depend
+        //on how the candidates were split up
+        boolean beats(Best other)
+        {
+            return other == null || score > other.score || (score == other.score && key < other.key);
+        }
+    }
+
+    //scores a range of the candidates, splitting it in half while it is large; the first count
+    //are placements of the current piece and the rest placements of the piece a HOLD brings in
+    private final class ScoreTask extends RecursiveTask<Best>
+    {
+        private static final long serialVersionUID = 1L;
+        //ranges at most this long are scored on one thread
+        private static final int THRESHOLD = 8;
+
+        private final int count;
+        private final int from, to;
+
+        ScoreTask(int count, int from, int to)
+        {
+            this.count = count;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Best compute()
+        {
+            if(pool != null && to - from > THRESHOLD)
+            {
+                int mid = (from + to) >>> 1;
+                ScoreTask left = new ScoreTask(count, from, mid);
+                left.fork();
+                Best right = new ScoreTask(count, mid, to).compute();
+                Best other = left.join();
+                return other != null && other.beats(right) ? other : right;
+            }
+            TetrisPiece bestPiece = null;
+            int bestX = 0, bestY = 0;
+            long bestKey = 0;
+            double bestScore = 0;
+            //work out each candidate's features from the board's, without placing it; the piece
+            //a HOLD brings in lands on the same stack, so it needs no reset of its own
+            FeatureEvaluator features = pool == null ? MyBrain.this.features : workerFeatures();
+            for(int n = from; n < to; n++)
+            {
+                boolean hold = n >= count;
+                Reachability reach = hold ? holdReachability : reachability;
+                SurfaceFilter kept = hold ? holdFilter : filter;
+                int i = hold ? n - count : n;
+                if(prefilter > 0)
+                {
+                    i = kept.getIndex(i);
+                }
+                TetrisPiece piece = reach.getPiece(i);
+                int x = reach.getX(i);
+                int y = reach.getY(i);
+                features.evaluate(piece, x, y);
+                double score = evaluator.score(features);
+                //break ties by key, so the same placement is chosen again after the piece moves toward it
+                long key = Placement.key(piece, x, y) | (hold ? HOLD_KEY : 0);
+                if(bestPiece == null || score > bestScore || (score == bestScore && key < bestKey))
+                {
+                    bestPiece = piece;
+                    bestX = x;
+                    bestY = y;
+                    bestKey = key;
+                    bestScore = score;
+                }
+            }
+            return bestPiece == null ? null : new Best(bestScore, bestKey, bestPiece, bestX, bestY);
+        }
+    }
+}
@@ -199,9 +199,58 @@ public interface Piece {
      * 
      * These points should reflect the current rotation of the piece - the body
      * of a stick, and a 90-degree clockwise rotated stick are different!
+     *
+     * This is a copy that the caller may change; code that runs often should read the
+     * packed {@link #getCells()} or {@link #getRowMasks()} instead.
      */
     Point[] getBody();
 
+    /**
+     * Returns the same points as getBody, packed into an int with one byte per block: x in
+     * the low four bits and y in the high four. Read them with {@link #cellX(int, int)} and
+     * {@link #cellY(int, int)} for i from 0 to {@link #CELLS} - 1.
+     */
+    default int getCells() {
+        Point[] body = getBody();
+        int cells = 0;
+        for (int i = 0; i < body.length; i++) {
+            cells |= (body[i].y << 4 | body[i].x) << (8 * i);
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the body as one bitmask per row of the bounding box, from the bottom row up;
+     * bit x of a row is set when the body has a block at that x. The array must not be
+     * changed.
+     */
+    default int[] getRowMasks() {
+        int[] masks = new int[getHeight()];
+        for (Point point : getBody()) {
+            masks[point.y] |= 1 << point.x;
+        }
+        return masks;
+    }
+
+    /**
+     * The number of blocks in every piece.
+     */
+    int CELLS = 4;
+
+    /**
+     * Returns the x of block i of a body packed by getCells.
+     */
+    static int cellX(int cells, int i) {
+        return cells >>> (8 * i) & 0xF;
+    }
+
+    /**
+     * Returns the y of block i of a body packed by getCells.
+     */
+    static int cellY(int cells, int i) {
+        return cells >>> (8 * i + 4) & 0xF;
+    }
+
     /**
      * Returns the piece's skirt. For each x value across the piece, the skirt
      * gives the lowest y value in the body relative to the bottom of the SRS
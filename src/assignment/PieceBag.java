@@ -0,0 +1,79 @@
+package assignment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The 7-bag piece randomizer: each of the 7 pieces is dealt once, in a random order,
+ * before the bag is refilled and shuffled again.
+ */
+public class PieceBag {
+    // The 7 canonical tetris pieces, in their spawn rotations.
+    public static final Piece[] PIECES = new Piece[] {
+        TetrisPiece.getPiece(Piece.PieceType.STICK, 0),
+        TetrisPiece.getPiece(Piece.PieceType.SQUARE, 0),
+        TetrisPiece.getPiece(Piece.PieceType.T, 0),
+        TetrisPiece.getPiece(Piece.PieceType.LEFT_L, 0),
+        TetrisPiece.getPiece(Piece.PieceType.RIGHT_L, 0),
+        TetrisPiece.getPiece(Piece.PieceType.LEFT_DOG, 0),
+        TetrisPiece.getPiece(Piece.PieceType.RIGHT_DOG, 0)
+    };
+
+    private final Random random;
+    // The pieces left in the current bag, in the order they will be dealt.
+    private final List<Piece> remaining = new ArrayList<>();
+
+    /**
+     * Creates a bag that shuffles with the given random generator; two bags given
+     * generators with the same seed deal the same pieces.
+     */
+    public PieceBag(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Removes and returns the next piece, refilling the bag first if it is empty.
+     */
+    public Piece next() {
+        if (remaining.isEmpty()) {
+            refill();
+        }
+        return remaining.remove(0);
+    }
+
+    /**
+     * Returns the next n pieces, in the order next() will deal them, without removing
+     * them. Bags are refilled ahead of time as needed, which doesn't change what is dealt.
+     */
+    public List<Piece> peek(int n) {
+        while (remaining.size() < n) {
+            refill();
+        }
+        return new ArrayList<>(remaining.subList(0, n));
+    }
+
+    /**
+     * Returns the pieces that could be dealt right after the next n: the rest of the bag
+     * the (n + 1)th piece comes from, including it, ordered by type so the order they
+     * will be dealt in isn't given away.
+     */
+    public List<Piece> unseen(int n) {
+        peek(n + 1);
+        // The current bag ends after the pieces left over from it, the later bags every 7 pieces.
+        int current = remaining.size() % 7;
+        int end = n < current ? current : current + ((n - current) / 7 + 1) * 7;
+        List<Piece> pieces = new ArrayList<>(remaining.subList(n, end));
+        pieces.sort(Comparator.comparing(Piece::getType));
+        return pieces;
+    }
+
+    // Adds all 7 pieces to the end of the bag in a random order.
+    private void refill() {
+        List<Piece> bag = new ArrayList<>(List.of(PIECES));
+        Collections.shuffle(bag, random);
+        remaining.addAll(bag);
+    }
+}
@@ -0,0 +1,63 @@
+package assignment;
+
+/**
+ * A place where a piece can come to rest, and the actions that take the piece
+ * there from where it started.
+ */
+public final class Placement {
+    private final TetrisPiece piece;
+    private final int x;
+    private final int y;
+    private final Board.Action[] path;
+    private final long key;
+
+    public Placement(TetrisPiece piece, int x, int y, Board.Action[] path) {
+        this.piece = piece;
+        this.x = x;
+        this.y = y;
+        this.path = path;
+        this.key = key(piece, x, y);
+    }
+
+    /**
+     * Returns a number identifying the cells a piece covers with its bounding box at (x, y).
+     * Two placements have the same key exactly when they fill the same cells, even if they
+     * get there with a different rotation (like the square's, or the stick's two flat ones).
+     */
+    public static long key(TetrisPiece piece, int x, int y) {
+        int[] masks = piece.getRowMasks();
+        long shape = 0;
+        for (int row = piece.getMaxY(); row >= piece.getMinY(); row--) {
+            shape = (shape << 4) | (masks[row] >>> piece.getMinX());
+        }
+        long bottom = y + piece.getMinY();
+        long left = x + piece.getMinX();
+        return (bottom << 40) | (left << 24) | (shape << 3) | piece.getType().ordinal();
+    }
+
+    /**
+     * Returns the piece, in the rotation it comes to rest in.
+     */
+    public TetrisPiece getPiece() { return piece; }
+
+    /**
+     * Returns the x of the lower-left hand corner of the piece's bounding box.
+     */
+    public int getX() { return x; }
+
+    /**
+     * Returns the y of the lower-left hand corner of the piece's bounding box.
+     */
+    public int getY() { return y; }
+
+    /**
+     * Returns the actions that take the piece from where it started to this placement;
+     * the last action places the piece.
+     */
+    public Board.Action[] getPath() { return path; }
+
+    /**
+     * Returns the key of the cells this placement fills, see {@link #key(TetrisPiece, int, int)}.
+     */
+    public long getKey() { return key; }
+}
@@ -0,0 +1,200 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds every place a piece can come to rest by searching breadth-first over all
+ * the (x, y, rotation) states it can reach with LEFT, RIGHT, DOWN and both rotations,
+ * wall kicks included. This finds tucks under overhangs and kicked spins as well as
+ * plain drops. Placements that fill the same cells are only returned once, with the
+ * shortest path that reaches them.
+ *
+ * A generator reuses its search arrays between calls, so it should not be shared
+ * between threads.
+ */
+public class PlacementGenerator {
+    // How far the corner of a piece's bounding box can be outside the board.
+    private static final int MARGIN = 4;
+
+    // The actions tried from each state, in the order they are tried.
+    private static final Board.Action[] MOVES = new Board.Action[] {
+        Board.Action.LEFT, Board.Action.RIGHT, Board.Action.DOWN, Board.Action.CLOCKWISE, Board.Action.COUNTERCLOCKWISE
+    };
+
+    // Search state, indexed by state number; a state is only valid if seen[state] == stamp.
+    private int[] seen = new int[0];
+    private int[] parent = new int[0];
+    private byte[] via = new byte[0];
+    private int[] distance = new int[0];
+    private int[] queue = new int[0];
+    private int stamp;
+
+    // The dimensions of the state space of the last search.
+    private int columns, rows;
+
+    /**
+     * Returns every placement the board's current piece can reach from where it is,
+     * or an empty list if there is no current piece.
+     */
+    public List<Placement> generate(Board board) {
+        Piece piece = board.getCurrentPiece();
+        if (piece == null) {
+            return new ArrayList<>();
+        }
+        Point position = board.getCurrentPiecePosition();
+        return generate(board, piece, position.x, position.y);
+    }
+
+    /**
+     * Returns every placement the given piece can reach from the given position on the
+     * board's stack, or an empty list if the piece does not fit there.
+     */
+    public List<Placement> generate(Board board, Piece piece, int x, int y) {
+        List<Placement> placements = new ArrayList<>();
+        if (!board.canPlace(piece, x, y)) {
+            return placements;
+        }
+        prepare(board.getWidth(), board.getHeight());
+        Piece.PieceType type = piece.getType();
+
+        int head = 0, tail = 0;
+        int start = state(piece.getRotationIndex(), x, y);
+        visit(start, -1, -1, 0);
+        queue[tail++] = start;
+
+        // Lock states found, in the order they were reached.
+        List<Integer> locks = new ArrayList<>();
+        while (head < tail) {
+            int s = queue[head++];
+            int rotation = rotation(s), sx = x(s), sy = y(s);
+            TetrisPiece current = TetrisPiece.getPiece(type, rotation);
+
+            for (int m = 0; m < MOVES.length; m++) {
+                int next = -1;
+                switch (MOVES[m]) {
+                    case LEFT:
+                        next = board.canPlace(current, sx - 1, sy) ? state(rotation, sx - 1, sy) : -1;
+                        break;
+                    case RIGHT:
+                        next = board.canPlace(current, sx + 1, sy) ? state(rotation, sx + 1, sy) : -1;
+                        break;
+                    case DOWN:
+                        if (board.canPlace(current, sx, sy - 1)) {
+                            next = state(rotation, sx, sy - 1);
+                        } else {
+                            // the piece would be placed here
+                            locks.add(s);
+                        }
+                        break;
+                    case CLOCKWISE:
+                        next = rotate(board, (TetrisPiece) current.clockwisePiece(), current.getClockwiseKicks(), sx, sy);
+                        break;
+                    case COUNTERCLOCKWISE:
+                        next = rotate(board, (TetrisPiece) current.counterclockwisePiece(), current.getCounterclockwiseKicks(), sx, sy);
+                        break;
+                    default:
+                        break;
+                }
+                if (next >= 0 && seen[next] != stamp) {
+                    visit(next, s, m, distance[s] + 1);
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        // Reach each lock state by whichever state above it in the same column is nearest to
+        // the start, and DROP from there; keep only the shortest way to fill each set of cells.
+        Map<Long, Integer> byKey = new HashMap<>();
+        for (int lock : locks) {
+            int rotation = rotation(lock), lx = x(lock), ly = y(lock);
+            TetrisPiece current = TetrisPiece.getPiece(type, rotation);
+            int from = lock;
+            for (int above = ly + 1; board.canPlace(current, lx, above); above++) {
+                int s = state(rotation, lx, above);
+                if (seen[s] == stamp && distance[s] < distance[from]) {
+                    from = s;
+                }
+            }
+            long key = Placement.key(current, lx, ly);
+            Integer existing = byKey.get(key);
+            if (existing != null && placements.get(existing).getPath().length <= distance[from] + 1) {
+                continue;
+            }
+            Placement placement = new Placement(current, lx, ly, path(from));
+            if (existing == null) {
+                byKey.put(key, placements.size());
+                placements.add(placement);
+            } else {
+                placements.set(existing, placement);
+            }
+        }
+        return placements;
+    }
+
+    // Returns the state a piece at (x, y) reaches by turning into rotated, using the first
+    // wall kick that fits, or -1 if none do.
+    private int rotate(Board board, TetrisPiece rotated, Point[] kicks, int x, int y) {
+        for (Point kick : kicks) {
+            if (board.canPlace(rotated, x + kick.x, y + kick.y)) {
+                return state(rotated.getRotationIndex(), x + kick.x, y + kick.y);
+            }
+        }
+        return -1;
+    }
+
+    // Returns the actions that lead to the given state, followed by a DROP.
+    private Board.Action[] path(int s) {
+        Board.Action[] path = new Board.Action[distance[s] + 1];
+        path[distance[s]] = Board.Action.DROP;
+        for (int i = distance[s] - 1; i >= 0; i--) {
+            path[i] = MOVES[via[s]];
+            s = parent[s];
+        }
+        return path;
+    }
+
+    // Marks a state as reached from parent by the given move.
+    private void visit(int s, int from, int move, int dist) {
+        seen[s] = stamp;
+        parent[s] = from;
+        via[s] = (byte) move;
+        distance[s] = dist;
+    }
+
+    // Sizes the search arrays for a board and starts a new search.
+    private void prepare(int width, int height) {
+        columns = width + 2 * MARGIN;
+        rows = height + 2 * MARGIN;
+        int states = 4 * columns * rows;
+        if (seen.length < states) {
+            seen = new int[states];
+            parent = new int[states];
+            via = new byte[states];
+            distance = new int[states];
+            queue = new int[states];
+            stamp = 0;
+        }
+        stamp++;
+    }
+
+    // Packs and unpacks the state of a piece in the given rotation at (x, y).
+    private int state(int rotation, int x, int y) {
+        return (rotation * columns + x + MARGIN) * rows + y + MARGIN;
+    }
+
+    private int rotation(int s) {
+        return s / (columns * rows);
+    }
+
+    private int x(int s) {
+        return (s / rows) % columns - MARGIN;
+    }
+
+    private int y(int s) {
+        return s % rows - MARGIN;
+    }
+}
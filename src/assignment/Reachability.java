@@ -0,0 +1,241 @@
+package assignment;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+/**
+ * Finds every place a piece can come to rest, like {@link PlacementGenerator}, but
+ * works on whole rows at a time instead of one state at a time.
+ *
+ * For each rotation and each row, the x positions where the piece fits are one bitmask,
+ * built from the board's row masks with a few shifts and ORs per block. Reachable
+ * positions are bitmasks too: sliding left and right is a flood fill inside the fit mask,
+ * falling is an AND with the fit mask of the row below, and each wall kick moves every
+ * position that hasn't kicked yet at once. All the lock positions of a piece fall out of
+ * a handful of word operations per row, which makes this cheap enough for lookahead
+ * search. It does not record how each position is reached; use PlacementGenerator for that.
+ *
+ * Results are kept in arrays that are reused between calls, so an instance should not be
+ * shared between threads.
+ */
+public class Reachability {
+    // How far the corner of a piece's bounding box can be left of or below the board; an x
+    // position is stored at bit x + PAD of a mask and a y position at index y + PAD.
+    private static final int PAD = 3;
+
+    // The board's rows, shifted up by PAD, with everything outside the board set.
+    private long[] occupied = new long[0];
+    // Positions where each rotation fits and positions each rotation can reach, by [rotation][y + PAD].
+    private long[][] fit = new long[4][0];
+    private long[][] reach = new long[4][0];
+    // Bits of every x position a bounding box corner can have.
+    private long columns;
+    private int height;
+
+    // The lock positions found by the last call.
+    private int count;
+    private TetrisPiece[] pieces = new TetrisPiece[64];
+    private int[] xs = new int[64];
+    private int[] ys = new int[64];
+
+    // Open addressed set of the keys of the lock positions, to drop ones that fill the same cells.
+    private long[] keys = new long[0];
+    private int[] keyStamps = new int[0];
+    private int stamp;
+
+    /**
+     * Finds every lock position the board's current piece can reach; does nothing but
+     * clear the results if there is no current piece.
+     */
+    public void compute(Board board) {
+        Piece piece = board.getCurrentPiece();
+        if (piece == null) {
+            count = 0;
+            return;
+        }
+        Point position = board.getCurrentPiecePosition();
+        compute(board, piece, position.x, position.y);
+    }
+
+    /**
+     * Finds every lock position the given piece can reach from the given position on the
+     * board's stack. Afterwards the results are numbered from 0 to getCount() - 1.
+     */
+    public void compute(Board board, Piece piece, int x, int y) {
+        count = 0;
+        if (!board.canPlace(piece, x, y)) {
+            return;
+        }
+        prepare(board);
+        Piece.PieceType type = piece.getType();
+        for (int rotation = 0; rotation < 4; rotation++) {
+            computeFit(TetrisPiece.getPiece(type, rotation), fit[rotation]);
+            Arrays.fill(reach[rotation], 0, height, 0L);
+        }
+        reach[piece.getRotationIndex()][y + PAD] = 1L << (x + PAD);
+
+        // Keep spreading until nothing changes; rotations can kick upwards, which needs another pass.
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int rotation = 0; rotation < 4; rotation++) {
+                TetrisPiece current = TetrisPiece.getPiece(type, rotation);
+                long[] fits = fit[rotation];
+                long[] reached = reach[rotation];
+                for (int row = height - 1; row >= 0; row--) {
+                    long r = reached[row];
+                    if (r == 0) {
+                        continue;
+                    }
+                    // slide left and right as far as the piece fits
+                    long spread = r;
+                    do {
+                        r = spread;
+                        spread = (r | (r << 1) | (r >>> 1)) & fits[row];
+                    } while (spread != r);
+                    reached[row] = r;
+                    // fall one row
+                    if (row > 0) {
+                        reached[row - 1] |= r & fits[row - 1];
+                    }
+                    // turn both ways, each position taking the first kick that fits
+                    changed |= kick(r, row, current.getClockwiseKicks(), (rotation + 1) & 3);
+                    changed |= kick(r, row, current.getCounterclockwiseKicks(), (rotation + 3) & 3);
+                }
+            }
+        }
+
+        // A reachable position that can't fall any further is a lock position.
+        stamp++;
+        for (int rotation = 0; rotation < 4; rotation++) {
+            TetrisPiece current = TetrisPiece.getPiece(type, rotation);
+            for (int row = 0; row < height; row++) {
+                long locks = reach[rotation][row] & ~(row > 0 ? fit[rotation][row - 1] : 0L);
+                while (locks != 0) {
+                    int bit = Long.numberOfTrailingZeros(locks);
+                    locks &= locks - 1;
+                    add(current, bit - PAD, row - PAD);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct lock positions found by the last call to compute.
+     */
+    public int getCount() { return count; }
+
+    /**
+     * Returns the piece, in its final rotation, of the i-th lock position.
+     */
+    public TetrisPiece getPiece(int i) { return pieces[i]; }
+
+    /**
+     * Returns the x of the bounding box corner of the i-th lock position.
+     */
+    public int getX(int i) { return xs[i]; }
+
+    /**
+     * Returns the y of the bounding box corner of the i-th lock position.
+     */
+    public int getY(int i) { return ys[i]; }
+
+    // Moves the positions in r through the kicks into the target rotation; returns true if any
+    // position was new, and so needs another pass.
+    private boolean kick(long r, int row, Point[] kicks, int target) {
+        boolean changed = false;
+        long remaining = r;
+        for (Point kick : kicks) {
+            int to = row + kick.y;
+            if (remaining == 0) {
+                break;
+            }
+            if (to < 0 || to >= height) {
+                continue;
+            }
+            long moved = (kick.x >= 0 ? remaining << kick.x : remaining >>> -kick.x) & fit[target][to];
+            if ((moved & ~reach[target][to]) != 0) {
+                reach[target][to] |= moved;
+                changed = true;
+            }
+            remaining &= ~(kick.x >= 0 ? moved >>> kick.x : moved << -kick.x);
+        }
+        return changed;
+    }
+
+    // Fills fits with the positions where the piece doesn't overlap the stack or the walls.
+    private void computeFit(TetrisPiece piece, long[] fits) {
+        int[] masks = piece.getRowMasks();
+        for (int row = 0; row < height; row++) {
+            long blocked = 0;
+            for (int i = piece.getMinY(); i <= piece.getMaxY(); i++) {
+                long cells = occupied(row - PAD + i);
+                int mask = masks[i];
+                while (mask != 0) {
+                    int c = Integer.numberOfTrailingZeros(mask);
+                    mask &= mask - 1;
+                    blocked |= cells >>> c;
+                }
+            }
+            fits[row] = ~blocked & columns;
+        }
+    }
+
+    // Returns the padded mask of board row y, all set outside the board.
+    private long occupied(int y) {
+        return y < 0 || y >= occupied.length ? -1L : occupied[y];
+    }
+
+    // Reads the board's rows and sizes the arrays for it.
+    private void prepare(Board board) {
+        int width = board.getWidth();
+        if (width + PAD > Long.SIZE - 4) {
+            throw new IllegalArgumentException("board is too wide: " + width);
+        }
+        height = board.getHeight() + PAD;
+        columns = (1L << (width + PAD)) - 1;
+        if (occupied.length != board.getHeight()) {
+            occupied = new long[board.getHeight()];
+        }
+        if (fit[0].length < height) {
+            for (int rotation = 0; rotation < 4; rotation++) {
+                fit[rotation] = new long[height];
+                reach[rotation] = new long[height];
+            }
+        }
+        //room for every position a piece could lock at, at most half full
+        int slots = Integer.highestOneBit(8 * (width + PAD) * height - 1) << 1;
+        if (keys.length < slots) {
+            keys = new long[slots];
+            keyStamps = new int[slots];
+            stamp = 0;
+        }
+        long walls = ~(((1L << width) - 1) << PAD);
+        for (int y = 0; y < occupied.length; y++) {
+            occupied[y] = ((long) board.getRowMask(y) << PAD) | walls;
+        }
+    }
+
+    // Records a lock position unless one filling the same cells was already recorded.
+    private void add(TetrisPiece piece, int x, int y) {
+        long key = Placement.key(piece, x, y);
+        int slot = (int) (key ^ (key >>> 29) ^ (key >>> 41)) & (keys.length - 1);
+        while (keyStamps[slot] == stamp) {
+            if (keys[slot] == key) {
+                return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keyStamps[slot] = stamp;
+        keys[slot] = key;
+        if (count == pieces.length) {
+            pieces = Arrays.copyOf(pieces, count * 2);
+            xs = Arrays.copyOf(xs, count * 2);
+            ys = Arrays.copyOf(ys, count * 2);
+        }
+        pieces[count] = piece;
+        xs[count] = x;
+        ys[count] = y;
+        count++;
+    }
+}
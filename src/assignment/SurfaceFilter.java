@@ -0,0 +1,269 @@
+package assignment;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * A cheap first pass over a piece's placements, so that only the most promising few get
+ * a full {@link FeatureEvaluator} evaluation or a lookahead search.
+ *
+ * It only looks at the surface of the stack: the column heights and how the bottom of
+ * the piece (its skirt) meets them. Each placement gains for every column where the skirt
+ * rests right on the stack, loses more for every empty cell it leaves under the skirt,
+ * and loses a little for how high it reaches. That takes a few additions per
+ * column of the piece, and no row scans at all.
+ *
+ * A filter keeps scratch state between calls, so each thread needs its own.
+ */
+public final class SurfaceFilter {
+    // What each covered column earns for resting on the stack, each cell left empty under
+    // the piece costs, and each row the piece's top ends up above the floor costs.
+    private static final int CONTACT_WEIGHT = 2;
+    private static final int GAP_WEIGHT = 4;
+    private static final int HEIGHT_WEIGHT = 1;
+
+    private int[] heights = new int[0];
+
+    // The indices of the placements kept by the last call to select, in the order given.
+    private int[] kept = new int[0];
+    private int keptCount;
+    // Scratch for select: candidate indices ranked by score, and their scores.
+    private int[] ranked = new int[0];
+    private int[] scores = new int[0];
+
+    /**
+     * Reads the column heights of the board that later placements are scored on.
+     */
+    public void reset(Board board) {
+        if (heights.length != board.getWidth()) {
+            heights = new int[board.getWidth()];
+        }
+        for (int x = 0; x < heights.length; x++) {
+            heights[x] = board.getColumnHeight(x);
+        }
+    }
+
+    /**
+     * Scores the placement of the piece with its bounding box at (x, y) on the board given
+     * to reset; higher is better.
+     */
+    public int score(TetrisPiece piece, int x, int y) {
+        int[] skirt = piece.getSkirt();
+        int contact = 0;
+        int gaps = 0;
+        for (int i = piece.getMinX(); i <= piece.getMaxX(); i++) {
+            int gap = y + skirt[i] - heights[x + i];
+            // A piece tucked under an overhang fills cells below the column's top instead.
+            if (gap == 0) {
+                contact++;
+            } else if (gap > 0) {
+                gaps += gap;
+            }
+        }
+        return CONTACT_WEIGHT * contact - GAP_WEIGHT * gaps - HEIGHT_WEIGHT * (y + piece.getMaxY() + 1);
+    }
+
+    /**
+     * Scores every placement the reachability search found on the board, and keeps the k
+     * best, or all of them if there are no more than k. Ties go to the placement found first.
+     * Returns how many were kept; read them with getIndex, which lists them in the order
+     * the search found them.
+     */
+    public int select(Board board, Reachability reachability, int k) {
+        int count = reachability.getCount();
+        if (kept.length < count) {
+            kept = new int[Math.max(count, 2 * kept.length)];
+        }
+        if (count <= k) {
+            for (int i = 0; i < count; i++) {
+                kept[i] = i;
+            }
+            keptCount = count;
+            return count;
+        }
+        rank(board, reachability);
+        System.arraycopy(ranked, 0, kept, 0, k);
+        Arrays.sort(kept, 0, k);
+        keptCount = k;
+        return k;
+    }
+
+    /**
+     * Returns the reachability index of the i-th placement kept by the last call to select.
+     */
+    public int getIndex(int i) {
+        if (i >= keptCount) {
+            throw new IndexOutOfBoundsException(i + " of " + keptCount + " kept placements");
+        }
+        return kept[i];
+    }
+
+    // Sorts the indices of all the placements into ranked, best score first and ties in the
+    // order they were found.
+    private void rank(Board board, Reachability reachability) {
+        int count = reachability.getCount();
+        if (ranked.length < count) {
+            ranked = new int[Math.max(count, 2 * ranked.length)];
+            scores = new int[ranked.length];
+        }
+        reset(board);
+        for (int i = 0; i < count; i++) {
+            int score = score(reachability.getPiece(i), reachability.getX(i), reachability.getY(i));
+            // Insertion sort; there are rarely more than a few dozen placements.
+            int at = i;
+            while (at > 0 && score > scores[at - 1]) {
+                ranked[at] = ranked[at - 1];
+                scores[at] = scores[at - 1];
+                at--;
+            }
+            ranked[at] = i;
+            scores[at] = score;
+        }
+    }
+
+    /**
+     * Counts, over many decisions, where the filter ranked the placement the full evaluator
+     * liked best, which gives the filter's recall for every k at once: the fraction of
+     * decisions where keeping k placements would have kept the best one. It can be shared
+     * between threads.
+     */
+    public static final class Recall {
+        // The last bucket counts every rank at or past it.
+        private static final int RANKS = 256;
+
+        private final AtomicLongArray ranks = new AtomicLongArray(RANKS);
+        private final AtomicLong candidates = new AtomicLong();
+
+        /**
+         * Scores every placement the reachability search found on the board both ways, and
+         * records where the filter ranked the evaluator's best one. Ties are broken the same
+         * way as in the brains, by placement key.
+         */
+        public void measure(Board board, Reachability reachability, SurfaceFilter filter,
+                            FeatureEvaluator features, Evaluator evaluator) {
+            int count = reachability.getCount();
+            if (count == 0) {
+                return;
+            }
+            features.reset(board);
+            int best = -1;
+            double bestScore = 0;
+            long bestKey = 0;
+            for (int i = 0; i < count; i++) {
+                TetrisPiece piece = reachability.getPiece(i);
+                int x = reachability.getX(i);
+                int y = reachability.getY(i);
+                features.evaluate(piece, x, y);
+                double score = evaluator.score(features);
+                long key = Placement.key(piece, x, y);
+                if (best < 0 || score > bestScore || (score == bestScore && key < bestKey)) {
+                    best = i;
+                    bestScore = score;
+                    bestKey = key;
+                }
+            }
+            filter.rank(board, reachability);
+            int rank = 0;
+            while (filter.ranked[rank] != best) {
+                rank++;
+            }
+            ranks.incrementAndGet(Math.min(rank, RANKS - 1));
+            candidates.addAndGet(count);
+        }
+
+        /**
+         * Returns the number of decisions measured.
+         */
+        public long getDecisions() {
+            long decisions = 0;
+            for (int i = 0; i < RANKS; i++) {
+                decisions += ranks.get(i);
+            }
+            return decisions;
+        }
+
+        /**
+         * Returns the mean number of placements per decision.
+         */
+        public double getMeanCandidates() {
+            long decisions = getDecisions();
+            return decisions == 0 ? 0 : candidates.get() / (double) decisions;
+        }
+
+        /**
+         * Returns the fraction of the decisions measured where keeping the k best
+         * placements by the filter would have kept the evaluator's best one.
+         */
+        public double getRecall(int k) {
+            long decisions = getDecisions();
+            if (decisions == 0) {
+                return 1;
+            }
+            long hits = 0;
+            for (int i = 0; i < Math.min(k, RANKS - 1); i++) {
+                hits += ranks.get(i);
+            }
+            return hits / (double) decisions;
+        }
+    }
+
+    /**
+     * Plays games with MyBrain, measuring the filter's recall against its evaluator on every
+     * decision, and prints the recall for a range of k. Given a k, it then plays the same
+     * games with the filter keeping k placements, and prints how both did and how long they
+     * took.
+     *
+     * Usage: SurfaceFilter [games] [max pieces per game] [seed] [k]
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int maxPieces = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        Recall recall = new Recall();
+        long startTime = System.nanoTime();
+        GameStats[] full = GameEngine.simulate(() -> new MyBrain(MyBrain.DEFAULT_COEF) {
+            private final Reachability reachability = new Reachability();
+            private final SurfaceFilter filter = new SurfaceFilter();
+            private final FeatureEvaluator features = new FeatureEvaluator(evaluator.getRequiredFeatures());
+
+            @Override
+            Placement bestPlacement(Board currentBoard) {
+                reachability.compute(currentBoard);
+                recall.measure(currentBoard, reachability, filter, features, evaluator);
+                return super.bestPlacement(currentBoard);
+            }
+        }, games, maxPieces, seed);
+        long fullNanos = System.nanoTime() - startTime;
+
+        System.out.printf(Locale.ROOT, "%d decisions, %.1f placements each%n", recall.getDecisions(),
+            recall.getMeanCandidates());
+        for (int n : new int[]{1, 2, 3, 4, 6, 8, 12, 16, 24, 32}) {
+            System.out.printf(Locale.ROOT, "k %2d: recall %.4f%n", n, recall.getRecall(n));
+        }
+        if (k > 0) {
+            Supplier<Brain> filtered = () -> new MyBrain(new LinearEvaluator(MyBrain.DEFAULT_COEF), null, k);
+            startTime = System.nanoTime();
+            GameStats[] staged = GameEngine.simulate(filtered, games, maxPieces, seed);
+            long stagedNanos = System.nanoTime() - startTime;
+            // The full run also measured recall, so time it again on its own.
+            startTime = System.nanoTime();
+            GameEngine.simulate(() -> new MyBrain(MyBrain.DEFAULT_COEF), games, maxPieces, seed);
+            fullNanos = System.nanoTime() - startTime;
+            System.out.printf(Locale.ROOT, "full:  lines %.2f, %d ms%n", meanLines(full), fullNanos / 1_000_000);
+            System.out.printf(Locale.ROOT, "k %2d:  lines %.2f, %d ms%n", k, meanLines(staged), stagedNanos / 1_000_000);
+        }
+    }
+
+    private static double meanLines(GameStats[] results) {
+        long lines = 0;
+        for (GameStats stats : results) {
+            lines += stats.getLines();
+        }
+        return lines / (double) results.length;
+    }
+}
@@ -7,257 +7,506 @@ import java.util.*;
  * Represents a Tetris board -- essentially a 2-d grid of piece types (or nulls). Supports
  * tetris pieces and row clearing.  Does not do any drawing or have any idea of
  * pixels. Instead, just represents the abstract 2-d board.
+ *
+ * The grid is stored as one bitmask per row (bit x of a row is set when the cell at x is
+ * filled), along with a parallel array holding the piece type of every filled cell, so
+ * collision, row-fill and row-clear checks are mask operations.
+ *
+ * Boards made by testMove share their row arrays with the board they were made from. The
+ * arrays are copied the first time either board writes to them, and the per-row piece type
+ * arrays are only copied for the rows that are actually written, so a speculative move costs
+ * O(rows touched) instead of a copy of every cell on the board.
+ *
+ * The rows only ever hold the locked stack; the falling piece is kept on top of them as
+ * a piece and a position, and is only written into the rows when it is placed. Queries
+ * like getGrid never change the board, so a board can be read from several threads at
+ * once as long as none of them moves it.
  */
 public final class TetrisBoard implements Board {
+    //piece types indexed by the values stored in types (minus one)
+    private static final Piece.PieceType[] TYPES = Piece.PieceType.values();
+    //offsets that keep cell keys and piece keys from ever being computed from the same value
+    private static final long CELL_SEED = 0x9e3779b97f4a7c15L;
+    private static final long PIECE_SEED = 0x632be59bd9b4e019L;
+    private static final long HOLD_SEED = 0x2545f4914f6cdd1dL;
+    private static final long SPAWN_SEED = 0x5851f42d4c957f2dL;
+
     private final int width;
     private final int height;
-    private Piece currentPiece;
-    private Point currentPoint;
-    private HashMap<Point, Piece> board;
+    //mask of a row with every cell filled
+    private final int fullRow;
+    private TetrisPiece currentPiece;
+    //position of the current piece; reused between pieces and only meaningful while currentPiece is set
+    private final Point currentPoint;
+    //one bitmask per row, bit x of rows[y] is set if (x, y) is filled
+    private int[] rows;
+    //piece type of every cell as ordinal + 1 (0 means empty), indexed by [y][x]
+    private byte[][] types;
+    //which rows of types this board may write to without copying them first
+    private boolean[] ownedRows;
+    //true while rows, types, columnHeights and rowWidths are also used by another board
+    private boolean shared;
     private Action lastAction;
     private Result lastResult;
-    private int clockwiseWallKickno;
-    private int counterclockwiseWallKickno;
     private int rowsCleared;
+    //indexes (before clearing) of the rows cleared by the last action, 16 bits each from the lowest up
+    private long clearedRows;
+    //an empty row of piece types, shared by every empty row and never written to
+    private final byte[] emptyRow;
     private int[] columnHeights;
     private int maxColumnHeight;
     private int[] rowWidths;
+    //zobrist hash of the stack: the xor of cellKey over every filled cell
+    private long stackHash;
+    //the piece in the hold slot, in its spawn rotation, and whether the current piece has
+    //already been swapped with it; a piece can only be held once until it locks
+    private TetrisPiece heldPiece;
+    private boolean holdUsed;
+    //the column the last piece given to nextPiece was centered on and the row it was put at,
+    //which is where a held piece comes back centered, and whether a piece has been given at all
+    private final Point spawnPoint;
+    private boolean spawned;
 
     // JTetris will use this constructor
     public TetrisBoard(int width, int height) {
+        if(width < 1 || width > Integer.SIZE || height < 1)
+        {
+            throw new IllegalArgumentException("board must be between 1 and " + Integer.SIZE + " blocks wide and at least 1 block high");
+        }
         this.width = width;
         this.height = height;
-        board = new HashMap<>();
-        clockwiseWallKickno = 0;
-        counterclockwiseWallKickno = 0;
+        fullRow = width == Integer.SIZE ? -1 : (1 << width) - 1;
+        currentPoint = new Point();
+        spawnPoint = new Point();
+        rows = new int[height];
+        emptyRow = new byte[width];
+        types = new byte[height][];
+        Arrays.fill(types, emptyRow);
+        //no row is owned yet, so the first write to each one gives it its own array
+        ownedRows = new boolean[height];
         rowsCleared = 0;
         maxColumnHeight = 0;
         columnHeights = new int[width];
         rowWidths = new int[height];
     }
 
-    //constructor used in testMove, needs a copy of the board
-    public TetrisBoard(int width, int height, HashMap<Point,Piece> b, Point p, Piece piece) {
-        this(width, height);
-        this.board = new HashMap<>();
-        //deep copy the board
-        for (HashMap.Entry<Point, Piece> e : b.entrySet())
-        {
-            board.put(e.getKey().getLocation(), new TetrisPiece(e.getValue().getType(), e.getValue().getBody(), e.getValue().getRotationIndex()));
-        }
-        //copy the point and piece
-        this.currentPoint = p.getLocation();
-        this.currentPiece = new TetrisPiece(piece.getType(), piece.getBody(), piece.getRotationIndex());
+    //constructor used in testMove, shares the arrays of the board until one of them writes
+    private TetrisBoard(TetrisBoard b) {
+        this.width = b.width;
+        this.height = b.height;
+        this.fullRow = b.fullRow;
+        this.rows = b.rows;
+        this.types = b.types;
+        this.columnHeights = b.columnHeights;
+        this.rowWidths = b.rowWidths;
+        this.shared = true;
+        b.shared = true;
+        this.maxColumnHeight = b.maxColumnHeight;
+        this.stackHash = b.stackHash;
+        this.lastAction = b.lastAction;
+        this.lastResult = b.lastResult;
+        this.rowsCleared = b.rowsCleared;
+        this.clearedRows = b.clearedRows;
+        this.emptyRow = b.emptyRow;
+        //pieces are immutable, so only the point needs copying
+        this.currentPiece = b.currentPiece;
+        this.currentPoint = b.currentPoint.getLocation();
+        this.heldPiece = b.heldPiece;
+        this.holdUsed = b.holdUsed;
+        this.spawnPoint = b.spawnPoint.getLocation();
+        this.spawned = b.spawned;
     }
 
     @Override
     public Result move(Action act)
     {
-        //check for a piece
-        if(currentPiece == null)
+        return move(act, null);
+    }
+
+    @Override
+    public Result move(Action act, MoveRecord record)
+    {
+        if(record != null)
         {
-            return Result.NO_PIECE;
+            remember(record);
         }
         //initialize variables
-        lastResult = Result.SUCCESS;
         lastAction = act;
         rowsCleared = 0;
-        //does actions
+        clearedRows = 0;
+        //check for a piece
+        if(currentPiece == null)
+        {
+            lastResult = Result.NO_PIECE;
+            return lastResult;
+        }
+        lastResult = Result.SUCCESS;
+        //does actions, each one checks that the piece fits where it is going before moving it
+        int x = currentPoint.x;
+        int y = currentPoint.y;
         if(act.equals(Action.LEFT))
         {
-            //check if action is possible
-            if(checkImpossible(act).contains(Action.LEFT))
+            if(fits(currentPiece, x - 1, y))
             {
-                lastResult = Result.OUT_BOUNDS;
+                currentPoint.translate(-1, 0);
             }
             else
             {
-                //remove piece, move location, add back piece
-                removeCurrentPiece();
-                currentPoint.setLocation(currentPoint.getX() - 1, currentPoint.getY());
-                addCurrentPiece();
+                lastResult = Result.OUT_BOUNDS;
             }
         }
         else if(act.equals(Action.RIGHT))
         {
-            //check if action is possible
-            if(checkImpossible(act).contains(Action.RIGHT))
+            if(fits(currentPiece, x + 1, y))
             {
-                lastResult = Result.OUT_BOUNDS;
+                currentPoint.translate(1, 0);
             }
             else
             {
-                //remove piece, move location, add back piece
-                removeCurrentPiece();
-                currentPoint.setLocation(currentPoint.getX() + 1, currentPoint.getY());
-                addCurrentPiece();
+                lastResult = Result.OUT_BOUNDS;
             }
         }
         else if(act.equals(Action.DOWN))
         {
-            //check if action is possible
-            if(checkImpossible(act).contains(Action.DOWN))
+            if(fits(currentPiece, x, y - 1))
             {
-                lastResult = Result.PLACE;
-                addCurrentPiece();
+                currentPoint.translate(0, -1);
             }
             else
             {
-                //remove piece, move location, add back piece
-                removeCurrentPiece();
-                currentPoint.setLocation(currentPoint.getX(), currentPoint.getY() - 1);
-                addCurrentPiece();
+                lastResult = Result.PLACE;
             }
         }
         else if(act.equals(Action.DROP))
         {
             //move the piece down until it hits something
-            do
+            while(fits(currentPiece, x, y - 1))
             {
-                move(Action.DOWN);
+                y--;
             }
-            while(!checkImpossible(act).contains(Action.DOWN));
-            //set lastResult and lastAction
+            currentPoint.setLocation(x, y);
             lastResult = Result.PLACE;
-            lastAction = Action.DROP;
-            addCurrentPiece();
         }
-        else if(act.equals(Action.CLOCKWISE))
+        else if(act.equals(Action.CLOCKWISE) || act.equals(Action.COUNTERCLOCKWISE))
         {
-            //check if action is possible
-            if(checkImpossible(act).contains(Action.CLOCKWISE))
+            boolean clockwise = act.equals(Action.CLOCKWISE);
+            TetrisPiece rotated = (TetrisPiece) (clockwise ? currentPiece.clockwisePiece() : currentPiece.counterclockwisePiece());
+            Point[] kicks = clockwise ? currentPiece.getClockwiseKicks() : currentPiece.getCounterclockwiseKicks();
+            int kick = findKick(rotated, kicks, x, y);
+            //if all the tests failed, then cannot rotate
+            if(kick == kicks.length)
             {
                 lastResult = Result.OUT_BOUNDS;
             }
             else
             {
-                removeCurrentPiece();
-                //translate the piece according to wall kick
-                Point kick;
-                if (currentPiece.getType().equals(Piece.PieceType.STICK))
-                {
-                    kick = Piece.I_CLOCKWISE_WALL_KICKS[currentPiece.getRotationIndex()][clockwiseWallKickno];
-                } else
-                {
-                    kick = Piece.NORMAL_CLOCKWISE_WALL_KICKS[currentPiece.getRotationIndex()][clockwiseWallKickno];
-                }
-                currentPoint.translate(kick.x, kick.y);
-                //rotate piece
-                currentPiece = currentPiece.clockwisePiece();
-                addCurrentPiece();
+                //translate the piece according to wall kick and rotate it
+                currentPoint.translate(kicks[kick].x, kicks[kick].y);
+                currentPiece = rotated;
             }
         }
-        else if(act.equals(Action.COUNTERCLOCKWISE))
+        else if(act.equals(Action.HOLD))
         {
-            //check if action is possible
-            if(checkImpossible(act).contains(Action.COUNTERCLOCKWISE))
-            {
-                lastResult = Result.OUT_BOUNDS;
-            }
-            else
-            {
-                removeCurrentPiece();
-                //translate the piece according to wall kick
-                Point kick;
-                if (currentPiece.getType().equals(Piece.PieceType.STICK))
-                {
-                    kick = Piece.I_COUNTERCLOCKWISE_WALL_KICKS[currentPiece.getRotationIndex()][counterclockwiseWallKickno];
-                } else
-                {
-                    kick = Piece.NORMAL_COUNTERCLOCKWISE_WALL_KICKS[currentPiece.getRotationIndex()][counterclockwiseWallKickno];
-                }
-                currentPoint.translate(kick.x, kick.y);
-                //rotate piece
-                currentPiece = currentPiece.counterclockwisePiece();
-                addCurrentPiece();
-            }
+            lastResult = hold();
         }
         else if(act.equals(Action.NOTHING))
         {
         }
+        return settle(record);
+    }
 
-        //find row widths
-        computeRowWidths();
-        //clear rows if complete
-        for(int i = 0; i < height; i++)
+    //puts the current piece in the hold slot, bringing the held piece in centered where the
+    //current one was given to the board;
+    //with nothing held the board is left without a piece, so the caller gives it the next one
+    private Result hold()
+    {
+        if(holdUsed)
+        {
+            return Result.OUT_BOUNDS;
+        }
+        TetrisPiece held = heldPiece;
+        if(held == null)
         {
-            if(getRowWidth(i) == width)
+            heldPiece = TetrisPiece.getPiece(currentPiece.getType(), 0);
+            currentPiece = null;
+            holdUsed = true;
+            return Result.NO_PIECE;
+        }
+        int x = spawnX(held);
+        if(!fits(held, x, spawnPoint.y))
+        {
+            return Result.OUT_BOUNDS;
+        }
+        heldPiece = TetrisPiece.getPiece(currentPiece.getType(), 0);
+        currentPiece = held;
+        currentPoint.setLocation(x, spawnPoint.y);
+        holdUsed = true;
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result place(Piece piece, int x, int y, MoveRecord record)
+    {
+        if(record != null)
+        {
+            remember(record);
+        }
+        if(!canPlace(piece, x, y))
+        {
+            throw new IllegalArgumentException("piece does not fit at (" + x + ", " + y + ")");
+        }
+        currentPiece = TetrisPiece.getPiece(piece.getType(), piece.getRotationIndex());
+        currentPoint.setLocation(x, y);
+        lastAction = Action.DROP;
+        lastResult = Result.PLACE;
+        rowsCleared = 0;
+        clearedRows = 0;
+        return settle(record);
+    }
+
+    //locks a placed piece, clears full rows and measures the stack after an action
+    private Result settle(MoveRecord record)
+    {
+        //the stack only changes when a piece is placed, so there is nothing to measure otherwise
+        if(lastResult != Result.PLACE)
+        {
+            return lastResult;
+        }
+        if(record != null)
+        {
+            record.lockedPiece = currentPiece;
+            record.lockedX = currentPoint.x;
+            record.lockedY = currentPoint.y;
+            //only the columns the piece covers change, unless it clears rows
+            if(record.columnHeights == null || record.columnHeights.length != width)
+            {
+                record.columnHeights = new int[width];
+            }
+            record.columnFrom = currentPoint.x + currentPiece.getMinX();
+            record.columnTo = currentPoint.x + currentPiece.getMaxX();
+            System.arraycopy(columnHeights, record.columnFrom, record.columnHeights, record.columnFrom,
+                record.columnTo - record.columnFrom + 1);
+        }
+        //write the placed piece into the stack, only its rows and columns need measuring
+        byte t = (byte) (currentPiece.getType().ordinal() + 1);
+        int cells = currentPiece.getCells();
+        for (int i = 0; i < Piece.CELLS; i++)
+        {
+            int x = currentPoint.x + Piece.cellX(cells, i);
+            int y = currentPoint.y + Piece.cellY(cells, i);
+            writableRow(y)[x] = t;
+            rows[y] |= 1 << x;
+            stackHash ^= cellKey(x, y);
+            rowWidths[y] = Integer.bitCount(rows[y]);
+            columnHeights[x] = Math.max(columnHeights[x], y + 1);
+            maxColumnHeight = Math.max(maxColumnHeight, y + 1);
+        }
+        //only the rows the piece landed in can have been filled, so find the full ones among them
+        //and compact every row above them down over the gaps in a single sweep
+        int bottom = currentPoint.y + currentPiece.getMinY();
+        int pieceTop = currentPoint.y + currentPiece.getMaxY();
+        int stackTop = maxColumnHeight;
+        currentPiece = null;
+        holdUsed = false;
+        int to = bottom;
+        for(int from = bottom; from < stackTop; from++)
+        {
+            if(from <= pieceTop && rows[from] == fullRow)
             {
-                //removes row
-                for(int j = 0; j < width; j++)
+                //keep the row so it can be put back
+                if(record != null)
                 {
-                    board.remove(new Point(j, i));
+                    record.clearedRows[rowsCleared] = from;
+                    record.clearedTypes[rowsCleared] = types[from];
                 }
-                //shifts higher rows down
-                for(int h = i; h < height; h++)
+                clearedRows |= (long) from << (16 * rowsCleared);
+                rowsCleared++;
+                stackHash ^= rowKey(from, rows[from]);
+            }
+            else
+            {
+                //moving row arrays instead of cells
+                if(to != from)
                 {
-                    for(int j = 0; j < width; j++)
-                    {
-                        if(board.get(new Point(j, h)) != null)
-                        {
-                            board.put(new Point(j, h - 1), board.remove(new Point(j, h)));
-                        }
-                    }
+                    //the row's cells hash differently one row down
+                    stackHash ^= rowKey(from, rows[from]) ^ rowKey(to, rows[from]);
+                    rows[to] = rows[from];
+                    types[to] = types[from];
+                    ownedRows[to] = ownedRows[from];
+                    rowWidths[to] = rowWidths[from];
                 }
-                //recompute row widths
-                computeRowWidths();
-                i--;
-                rowsCleared++;
+                to++;
             }
         }
-        //compute aggregate column height
-        for(int i = 0; i < width; i++)
+        //the rows the stack moved down out of are now empty
+        for(int y = to; y < stackTop; y++)
         {
-            columnHeights[i] = 0;
-            for (int j = height - 1; j >= 0; j--)
+            rows[y] = 0;
+            types[y] = emptyRow;
+            ownedRows[y] = false;
+            rowWidths[y] = 0;
+        }
+        if(rowsCleared > 0)
+        {
+            if(record != null)
             {
-                if (getGrid(i, j) != null)
+                //every column changes; the ones the piece didn't cover still hold their old heights
+                System.arraycopy(columnHeights, 0, record.columnHeights, 0, record.columnFrom);
+                System.arraycopy(columnHeights, record.columnTo + 1, record.columnHeights, record.columnTo + 1,
+                    width - record.columnTo - 1);
+                record.columnFrom = 0;
+                record.columnTo = width - 1;
+            }
+            //every column ran through the full rows, so each one is at least that much lower
+            maxColumnHeight = 0;
+            for(int x = 0; x < width; x++)
+            {
+                int y = columnHeights[x] - rowsCleared;
+                while(y > 0 && (rows[y - 1] & (1 << x)) == 0)
                 {
-                    columnHeights[i] = j + 1;
-                    break;
+                    y--;
                 }
+                columnHeights[x] = y;
+                maxColumnHeight = Math.max(maxColumnHeight, y);
             }
         }
-        //find max column height
-        maxColumnHeight = 0;
-        for(int i = 0; i < width; i++)
+        if(record != null)
+        {
+            record.clearedCount = rowsCleared;
+        }
+        return lastResult;
+    }
+
+    @Override
+    public void undo(MoveRecord record)
+    {
+        //moves that locked nothing only changed the piece and the scalars, so the shared
+        //arrays can stay shared
+        if(record.lockedPiece != null)
         {
-            int height = this.getColumnHeight(i);
-            if(maxColumnHeight < height)
+            unshare();
+            //put the cleared rows back, bottom to top, pushing the rows above them up
+            for(int i = 0; i < record.clearedCount; i++)
+            {
+                int y = record.clearedRows[i];
+                System.arraycopy(rows, y, rows, y + 1, height - y - 1);
+                System.arraycopy(types, y, types, y + 1, height - y - 1);
+                System.arraycopy(ownedRows, y, ownedRows, y + 1, height - y - 1);
+                rows[y] = fullRow;
+                types[y] = record.clearedTypes[i];
+                //the record may outlive this board, so never write to its row in place
+                ownedRows[y] = false;
+            }
+            //then take the locked piece back out of the stack
+            int cells = record.lockedPiece.getCells();
+            for (int i = 0; i < Piece.CELLS; i++)
             {
-                maxColumnHeight = height;
+                int x = record.lockedX + Piece.cellX(cells, i);
+                int y = record.lockedY + Piece.cellY(cells, i);
+                writableRow(y)[x] = 0;
+                rows[y] &= ~(1 << x);
+            }
+            System.arraycopy(record.columnHeights, record.columnFrom, columnHeights, record.columnFrom,
+                record.columnTo - record.columnFrom + 1);
+            //a row's width is its cell count, so the rows that changed are counted again: the
+            //piece's, or every row up to the top of the stack if rows were cleared
+            int bottom = record.lockedY + record.lockedPiece.getMinY();
+            int top = record.lockedY + record.lockedPiece.getMaxY() + 1;
+            if(record.clearedCount > 0)
+            {
+                top = Math.max(top, record.maxHeight);
+            }
+            for(int y = bottom; y < top; y++)
+            {
+                rowWidths[y] = Integer.bitCount(rows[y]);
             }
         }
-        return lastResult;
+        maxColumnHeight = record.maxHeight;
+        stackHash = record.stackHash;
+        lastAction = record.lastAction;
+        lastResult = record.lastResult;
+        rowsCleared = record.rowsCleared;
+        clearedRows = record.lastClearedRows;
+        currentPiece = record.piece;
+        if(currentPiece != null)
+        {
+            currentPoint.setLocation(record.x, record.y);
+        }
+        heldPiece = record.heldPiece;
+        holdUsed = record.holdUsed;
+        spawnPoint.setLocation(record.spawnX, record.spawnY);
+    }
+
+    //saves the piece and the scalars a move could change into the record, so undo can restore
+    //them; settle saves the column heights a lock changes
+    private void remember(MoveRecord record)
+    {
+        record.maxHeight = maxColumnHeight;
+        record.stackHash = stackHash;
+        record.lastAction = lastAction;
+        record.lastResult = lastResult;
+        record.rowsCleared = rowsCleared;
+        record.lastClearedRows = clearedRows;
+        record.piece = currentPiece;
+        if(currentPiece != null)
+        {
+            record.x = currentPoint.x;
+            record.y = currentPoint.y;
+        }
+        record.heldPiece = heldPiece;
+        record.holdUsed = holdUsed;
+        record.spawnX = spawnPoint.x;
+        record.spawnY = spawnPoint.y;
+        record.lockedPiece = null;
+        record.clearedCount = 0;
     }
 
     @Override
     //tests a move on a copy of the board, used in the AI
     public Board testMove(Action act)
     {
-        Board temp = new TetrisBoard(this.width, this.height, this.board, this.currentPoint, this.currentPiece);
+        Board temp = new TetrisBoard(this);
         temp.move(act);
         return temp;
     }
 
-    public HashMap<Point, Piece> getBoard()
-    {
-        return board;
-    }
-
     @Override
     public Piece getCurrentPiece() { return currentPiece; }
 
     @Override
-    public Point getCurrentPiecePosition() { return currentPoint; }
+    public Point getCurrentPiecePosition() { return currentPiece == null ? null : currentPoint; }
+
+    @Override
+    public Piece getHeldPiece() { return heldPiece; }
+
+    @Override
+    public boolean canHold() { return currentPiece != null && !holdUsed; }
+
+    @Override
+    //a new point, so callers can't move where held pieces come back
+    public Point getSpawnPosition(Piece piece) { return spawned ? new Point(spawnX(piece), spawnPoint.y) : null; }
+
+    //the column the given piece comes into play at, centered like the last piece given was;
+    //pieces of different widths don't line up at the same corner
+    private int spawnX(Piece piece)
+    {
+        return spawnPoint.x - piece.getWidth() / 2;
+    }
 
     @Override
     //gets next new piece
     public void nextPiece(Piece p, Point spawnPosition)
     {
-        currentPiece = p;
-        currentPoint = spawnPosition;
-        addCurrentPiece();
+        //use the shared instance of the piece, which carries the rotation tables
+        TetrisPiece piece = TetrisPiece.getPiece(p.getType(), p.getRotationIndex());
+        if(!fits(piece, spawnPosition.x, spawnPosition.y))
+        {
+            throw new IllegalArgumentException("piece does not fit at " + spawnPosition);
+        }
+        currentPiece = piece;
+        currentPoint.setLocation(spawnPosition);
+        spawnPoint.setLocation(spawnPosition.x + piece.getWidth() / 2, spawnPosition.y);
+        spawned = true;
     }
 
     @Override
@@ -265,19 +514,33 @@ public final class TetrisBoard implements Board {
     {
         if(!(other instanceof TetrisBoard)) return false;
         TetrisBoard b = (TetrisBoard) other;
-        if(b.getCurrentPiece() != currentPiece && b.getCurrentPiecePosition() != currentPoint && b.getCurrentPiecePosition().equals(currentPoint) && !b.getCurrentPiece().equals(currentPiece))
+        if(width != b.width || height != b.height)
+        {
+            return false;
+        }
+        if(!Objects.equals(currentPiece, b.currentPiece) || (currentPiece != null && !currentPoint.equals(b.currentPoint)))
+        {
+            return false;
+        }
+        if(heldPiece != b.heldPiece || holdUsed != b.holdUsed)
+        {
+            return false;
+        }
+        if(spawnMatters() && !spawnPoint.equals(b.spawnPoint))
         {
             return false;
         }
-        for(int x = 0; x < width; x++)
+        //the hashes are kept up to date anyway, and boards that differ almost always differ there
+        if(stackHash != b.stackHash || maxColumnHeight != b.maxColumnHeight)
         {
-            for(int y = 0; y < height; y++)
+            return false;
+        }
+        //rows above the stack are empty in both, and shared type rows are equal without a look
+        for(int y = 0; y < maxColumnHeight; y++)
+        {
+            if(rows[y] != b.rows[y] || (types[y] != b.types[y] && !Arrays.equals(types[y], b.types[y])))
             {
-                Point check = new Point(x, y);
-                if(board.get(check) != null && board.get(check).getType().equals(b.getBoard().get(check).getType()))
-                {
-                    return false;
-                }
+                return false;
             }
         }
         return true;
@@ -292,6 +555,16 @@ public final class TetrisBoard implements Board {
     @Override
     public int getRowsCleared() { return rowsCleared; }
 
+    @Override
+    public int getClearedRow(int i)
+    {
+        if(i < 0 || i >= rowsCleared)
+        {
+            throw new IndexOutOfBoundsException("only " + rowsCleared + " rows were cleared");
+        }
+        return (int) (clearedRows >>> (16 * i)) & 0xFFFF;
+    }
+
     @Override
     public int getWidth() { return width; }
 
@@ -307,7 +580,26 @@ public final class TetrisBoard implements Board {
     @Override
     public int dropHeight(Piece piece, int x)
     {
-        return this.testMove(Action.DROP).getCurrentPiecePosition().y;
+        TetrisPiece p = TetrisPiece.getPiece(piece.getType(), piece.getRotationIndex());
+        if(x + p.getMinX() < 0 || x + p.getMaxX() >= width)
+        {
+            throw new IllegalArgumentException("piece doesn't fit between the walls at x = " + x);
+        }
+        return landing(p, x + p.getMinX(), columnHeights);
+    }
+
+    //dropped from above, the piece comes to rest on whichever column its skirt meets first, so
+    //its landing y is the highest column height minus the skirt under that column
+    private static int landing(TetrisPiece p, int left, int[] heights)
+    {
+        int[] skirt = p.getSkirt();
+        int x = left - p.getMinX();
+        int y = Integer.MIN_VALUE;
+        for (int i = p.getMinX(); i <= p.getMaxX(); i++)
+        {
+            y = Math.max(y, heights[x + i] - skirt[i]);
+        }
+        return y;
     }
 
     @Override
@@ -316,21 +608,6 @@ public final class TetrisBoard implements Board {
         return columnHeights[x];
     }
 
-    void computeRowWidths()
-    {
-        for(int y = 0; y < height; y++)
-        {
-            int counter = 0;
-            for (int i = 0; i < width; i++)
-            {
-                if (this.getGrid(i, y) != null)
-                {
-                    counter++;
-                }
-            }
-            rowWidths[y] = counter;
-        }
-    }
     @Override
     public int getRowWidth(int y)
     {
@@ -338,281 +615,150 @@ public final class TetrisBoard implements Board {
     }
 
     @Override
-    //get the current board without the current piece on it
-    public Piece.PieceType getGrid(int x, int y)
+    public int getRowMask(int y)
     {
-        boolean pieceRemoved = false;
-        //only remove current piece if it was not placed
-        if (!Result.PLACE.equals(lastResult) && currentPiece != null)
-        {
-            //add and removeCurrentPiece are constant time since there are exactly 4 points in every piece
-            removeCurrentPiece();
-            pieceRemoved = true;
-        }
-        Point temp = new Point(x, y);
-        //return null if board or mapping doesn't exist
-        if(this.board == null)
-        {
-            return null;
-        }
-        if(board.get(temp) == null)
+        return rows[y];
+    }
+
+    @Override
+    public long getHash()
+    {
+        long hash = heldPiece == null ? stackHash : stackHash ^ mix(heldPiece.getType().ordinal() ^ HOLD_SEED);
+        if(currentPiece == null)
         {
-            return null;
+            return hash;
         }
-        Piece.PieceType t = board.get(temp).getType();
-        //add back piece if it was removed earlier
-        if(pieceRemoved)
+        if(spawnMatters())
         {
-            addCurrentPiece();
+            hash ^= mix(((long) spawnPoint.y << 16) ^ (spawnPoint.x & 0xFFFF) ^ SPAWN_SEED);
         }
-        return t;
+        //key the piece by its type and cells, like equals does, so equal boards hash the same
+        return hash ^ mix(((long) currentPiece.hashCode() << 32) ^ ((long) currentPoint.y << 16) ^ (currentPoint.x & 0xFFFF) ^ PIECE_SEED);
     }
 
+    //whether a HOLD would bring the held piece back at the spawn; otherwise the next piece
+    //given replaces the spawn before it is used, and boards don't differ by it
+    private boolean spawnMatters()
+    {
+        return currentPiece != null && !holdUsed && heldPiece != null;
+    }
 
+    @Override
+    public int hashCode()
+    {
+        long hash = getHash();
+        return (int) (hash ^ (hash >>> 32));
+    }
 
-    //checks which actions are impossible
-    Set<Action> checkImpossible(Action act)
+    //the zobrist key of a filled cell; derived from the position rather than kept in a table,
+    //so boards of any height share the same keys
+    private static long cellKey(int x, int y)
     {
-        Set<Action> impossibleActions = new HashSet<>();
-
-    //check for collisions on walls
-        for(int i = 0; i < currentPiece.getBody().length; i++)
-        {
-            //dx and dy are the x and y values relative to the bounding box
-            int dx = currentPiece.getBody()[i].x;
-            int dy = currentPiece.getBody()[i].y;
-            //makes a temporary point at the current point
-            Point temp = currentPoint.getLocation();
-            //adds each dx and dy to the temporary point
-            temp.translate(dx, dy);
-            //check boundary below
-            if(temp.getY() == 0)
-            {
-                impossibleActions.add(Action.DOWN);
-            }
-            //check boundary on the right
-            if(temp.getX() == width - 1)
-            {
-                impossibleActions.add(Action.RIGHT);
-            }
-            //check boundary on the left
-            if(temp.getX() == 0)
-            {
-                impossibleActions.add(Action.LEFT);
-            }
-        }
+        return mix(((long) y << 5 | x) + CELL_SEED);
+    }
 
-        int[] Iskirt;
-        Point[] pskirt;
-        Piece rotatedSkirt;
-    //check for piece collisions below
-        if(act.equals(Action.DOWN) || act.equals(Action.DROP))
+    //the xor of the keys of the filled cells of a row
+    private static long rowKey(int y, int mask)
+    {
+        long key = 0;
+        while(mask != 0)
         {
-            //get the skirt
-            Iskirt = currentPiece.getSkirt();
-            for (int i = 0; i < Iskirt.length; i++)
-            {
-                //makes a temporary point at the current point and moves it to the new location to test
-                Point temp = currentPoint.getLocation();
-                temp.translate(i, Iskirt[i]);
-                if (this.getGrid(temp.x, temp.y - 1) != (null))
-                {
-                    impossibleActions.add(Action.DOWN);
-                }
-            }
+            key ^= cellKey(Integer.numberOfTrailingZeros(mask), y);
+            mask &= mask - 1;
         }
+        return key;
+    }
 
-    //check for collision to the left
-        if(act.equals(Action.LEFT))
+    //spreads the bits of a value over all 64 bits (the splitmix64 finalizer); also used to
+    //build other keys from board hashes, like the search's transposition table keys
+    static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    //get the current board without the current piece on it
+    public Piece.PieceType getGrid(int x, int y)
+    {
+        //return null if the position is off the board
+        if(x < 0 || x >= width || y < 0 || y >= height)
         {
-            //get the skirt of the counterclockwise piece
-            Iskirt = currentPiece.counterclockwisePiece().getSkirt();
-            //convert int array to point array
-            pskirt = new Point[Iskirt.length];
-            for (int i = 0; i < Iskirt.length; i++)
-            {
-                pskirt[i] = new Point(i, Iskirt[i]);
-            }
-            //make a new piece with the counterclockwise skirt as body
-            rotatedSkirt = new TetrisPiece(currentPiece.getType(), pskirt, 0);
-            //rotate the piece back clockwise to get the leftmost edge
-            Point[] leftmost = rotatedSkirt.clockwisePiece().getBody();
-            for (Point point : leftmost)
-            {
-                int dx = point.x;
-                int dy = point.y;
-                //makes a temporary point at the current point and move it to the new location to test
-                Point temp = currentPoint.getLocation();
-                temp.translate(dx, dy);
-                if (this.getGrid(temp.x - 1, temp.y) != (null))
-                {
-                    impossibleActions.add(Action.LEFT);
-                }
-            }
+            return null;
         }
+        //the current piece is never in the grid, so this is a plain read
+        int t = types[y][x];
+        return t == 0 ? null : TYPES[t - 1];
+    }
+
+    @Override
+    public boolean canPlace(Piece piece, int x, int y)
+    {
+        return fits(TetrisPiece.getPiece(piece.getType(), piece.getRotationIndex()), x, y);
+    }
 
-    //check for collision to the right
-        //get the skirt of the clockwise piece
-        if(act.equals(Action.RIGHT))
+    //checks if the piece is inside the board and clear of the stack with its bounding box at (x, y),
+    //one mask test per row of the piece
+    private boolean fits(TetrisPiece piece, int x, int y)
+    {
+        if(x + piece.getMinX() < 0 || x + piece.getMaxX() >= width || y + piece.getMinY() < 0 || y + piece.getMaxY() >= height)
         {
-            Iskirt = currentPiece.clockwisePiece().getSkirt();
-            //convert int array to point array
-            pskirt = new Point[Iskirt.length];
-            for (int i = 0; i < Iskirt.length; i++)
-            {
-                pskirt[i] = new Point(i, Iskirt[i]);
-            }
-            //make a new piece with the clockwise skirt as body
-            rotatedSkirt = new TetrisPiece(currentPiece.getType(), pskirt, 0);
-            //rotate the piece back counterclockwise to get the leftmost edge
-            Point[] rightmost = rotatedSkirt.counterclockwisePiece().getBody();
-            for (Point point : rightmost)
-            {
-                int dx = point.x;
-                int dy = point.y;
-                //makes a temporary point at the current point and move it to the new location to test
-                Point temp = currentPoint.getLocation();
-                temp.translate(dx, dy);
-                if (this.getGrid(temp.x + 1, temp.y) != (null))
-                {
-                    impossibleActions.add(Action.RIGHT);
-                }
-            }
+            return false;
         }
-
-    //check for collision in clockwise rotation
-        if(act.equals(Action.CLOCKWISE))
+        int[] masks = piece.getRowMasks();
+        for (int row = piece.getMinY(); row <= piece.getMaxY(); row++)
         {
-            //remove current piece, so it doesn't check for collisions with itself
-            removeCurrentPiece();
-            Point[] clockwisePiece = currentPiece.clockwisePiece().getBody();
-            int testno;
-            //check 5 locations for wall kick
-            for (testno = 0; testno < 5; )
-            {
-                Point kickPoint;
-                //use different arrays if the piece is a stick
-                if(currentPiece.getType().equals(Piece.PieceType.STICK))
-                {
-                    kickPoint = Piece.I_CLOCKWISE_WALL_KICKS[currentPiece.getRotationIndex()][testno];
-                }
-                else
-                {
-                    kickPoint = Piece.NORMAL_CLOCKWISE_WALL_KICKS[currentPiece.getRotationIndex()][testno];
-                }
-                boolean rotatable = true;
-                for (Point point : clockwisePiece)
-                {
-                    int dx = point.x + kickPoint.x;
-                    int dy = point.y + kickPoint.y;
-                    //makes a temporary point at the current point and move it to the new location to test
-                    Point temp = currentPoint.getLocation();
-                    temp.translate(dx, dy);
-                    if (board.get(temp) != null || temp.x < 0 || temp.y < 0 || temp.x > width - 1)
-                    {
-                        rotatable = false;
-                        testno++;
-                        break;
-                    }
-                }
-                if (rotatable)
-                {
-                    break;
-                }
-
-            }
-            clockwiseWallKickno = testno;
-            //if all the tests failed, then cannot rotate clockwise
-            if (testno == 5)
+            //the bounds check above means no block is shifted off either side
+            int mask = x >= 0 ? masks[row] << x : masks[row] >>> -x;
+            if ((rows[y + row] & mask) != 0)
             {
-                impossibleActions.add(Action.CLOCKWISE);
+                return false;
             }
-            //add back current piece
-            addCurrentPiece();
         }
+        return true;
+    }
 
-    //check for collision in counterclockwise rotation
-        if(act.equals(Action.COUNTERCLOCKWISE))
+    //returns the index of the first wall kick that lets the current piece at (x, y) turn into
+    //rotated, or kicks.length if none do
+    private int findKick(TetrisPiece rotated, Point[] kicks, int x, int y)
+    {
+        int testno;
+        for (testno = 0; testno < kicks.length; testno++)
         {
-            //remove current piece, so it doesn't check for collisions with itself
-            removeCurrentPiece();
-            Point[] counterclockwisePiece = currentPiece.counterclockwisePiece().getBody();
-            int testno;
-            //check 5 locations for wall kick
-            for (testno = 0; testno < 5; )
-            {
-                Point kickPoint;
-                //use different arrays if the piece is a stick
-                if(currentPiece.getType().equals(Piece.PieceType.STICK))
-                {
-                    kickPoint = Piece.I_COUNTERCLOCKWISE_WALL_KICKS[currentPiece.getRotationIndex()][testno];
-                }
-                else
-                {
-                    kickPoint = Piece.NORMAL_COUNTERCLOCKWISE_WALL_KICKS[currentPiece.getRotationIndex()][testno];
-                }
-                boolean rotatable = true;
-                for (Point point : counterclockwisePiece)
-                {
-                    int dx = point.x + kickPoint.x;
-                    int dy = point.y + kickPoint.y;
-                    //makes a temporary point at the current point and move it to the new location to test
-                    Point temp = currentPoint.getLocation();
-                    temp.translate(dx, dy);
-                    //System.out.println(temp);
-                    if (board.get(temp) != null || temp.x < 0 || temp.y < 0 || temp.x > width - 1)
-                    {
-                        rotatable = false;
-                        testno++;
-                        break;
-                    }
-                }
-                if (rotatable)
-                {
-                    break;
-                }
-            }
-            counterclockwiseWallKickno = testno;
-            //if all the tests failed, then cannot rotate counterclockwise
-            if (testno == 5)
+            if (fits(rotated, x + kicks[testno].x, y + kicks[testno].y))
             {
-                impossibleActions.add(Action.COUNTERCLOCKWISE);
+                break;
             }
-            //add back current piece
-            addCurrentPiece();
         }
-        return impossibleActions;
+        return testno;
     }
 
-    //function to remove piece from board
-    void removeCurrentPiece()
+    //gives this board its own copy of the row arrays if another board is still using them
+    private void unshare()
     {
-        for(int i = 0; i < currentPiece.getBody().length; i++)
+        if(!shared)
         {
-            //dx and dy are the x and y values relative to the bounding box
-            int dx = currentPiece.getBody()[i].x;
-            int dy = currentPiece.getBody()[i].y;
-            //makes a temporary point at the current location and translates it to the correct location
-            Point temp = currentPoint.getLocation();
-            temp.translate(dx, dy);
-            //removes the point
-            board.remove(temp);
+            return;
         }
+        rows = rows.clone();
+        types = types.clone();
+        columnHeights = columnHeights.clone();
+        rowWidths = rowWidths.clone();
+        //the piece type rows themselves are still shared, and get copied as they are written
+        ownedRows = new boolean[height];
+        shared = false;
     }
 
-    //function to add piece to board
-    void addCurrentPiece()
+    //returns the piece type array of row y, copying it first if another board may be using it
+    private byte[] writableRow(int y)
     {
-        for(int i = 0; i < currentPiece.getBody().length; i++)
+        unshare();
+        if(!ownedRows[y])
         {
-            //dx and dy are the x and y values relative to the bounding box
-            int dx = currentPiece.getBody()[i].x;
-            int dy = currentPiece.getBody()[i].y;
-            //makes a temporary point at the current location and translates it to the correct location
-            Point temp = currentPoint.getLocation();
-            temp.translate(dx, dy);
-            //adds the point
-            board.put(temp, currentPiece);
+            types[y] = types[y].clone();
+            ownedRows[y] = true;
         }
+        return types[y];
     }
 }
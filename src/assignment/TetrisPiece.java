@@ -1,69 +1,144 @@
 package assignment;
 
 import java.awt.*;
-import java.util.Set;
 
 /**
  * An immutable representation of a tetris piece in a particular rotation.
- * 
+ *
  * All operations on a TetrisPiece should be constant time, except for it's
  * initial construction. This means that rotations should also be fast - calling
  * clockwisePiece() and counterclockwisePiece() should be constant time! You may
  * need to do precomputation in the constructor to make this possible.
+ *
+ * Every piece type in every rotation is built once, when the class is loaded, along with
+ * its skirt, row masks and wall kicks. Rotating a piece just returns one of these
+ * shared instances, so it never allocates. Two pieces are equal when they are the same
+ * type and fill the same cells of their bounding box, so rotations that look the same,
+ * like the square's four, are equal even though they are different objects.
  */
 public final class TetrisPiece implements Piece {
 
+    //the shared instance of every piece, indexed by [type ordinal][rotation index]
+    private static final TetrisPiece[][] PIECES = new TetrisPiece[PieceType.values().length][4];
+
+    static
+    {
+        for (PieceType type : PieceType.values())
+        {
+            TetrisPiece[] rotations = PIECES[type.ordinal()];
+            Point[] body = type.getSpawnBody();
+            for (int i = 0; i < 4; i++)
+            {
+                rotations[i] = new TetrisPiece(type, i, body);
+                body = rotateClockwise(body, rotations[i].width);
+            }
+        }
+    }
+
+    private final PieceType ptype;
+    private final int rotationIndex;
+    private final int width;
+    private final int height;
+    private final Point[] body;
+    //skirt is the array of blocks at the bottom of the piece
+    private final int[] skirt;
+    //wall kicks to try when rotating away from this rotation
+    private final Point[] clockwiseKicks;
+    private final Point[] counterclockwiseKicks;
+    //the body as a bitmask over the bounding box, bit (y * 4 + x) is set for each block
+    private final int cellMask;
+    //the body as one bitmask per row of the bounding box, bit x is set for each block
+    private final int[] rowMasks;
+    //the body packed one block per byte, x in the low nibble and y in the high one
+    private final int cells;
+    //the smallest box around the blocks, relative to the bounding box
+    private final int minX, maxX, minY, maxY;
+
     /**
      * Construct a tetris piece of the given type. The piece is in its spawn orientation,
      * i.e., a rotation index of 0.
      */
-    private final PieceType ptype;
-    int rotationIndex;
-    private Point[] body;
-    //skirt is the array of blocks at the bottom of the piece
-    private int[] skirt;
-
     public TetrisPiece(PieceType type)
     {
-        this.ptype = type;
-        this.body = type.getSpawnBody();
-        rotationIndex = 0;
-        makeSkirt();
+        this(type, 0, type.getSpawnBody());
     }
 
-    public TetrisPiece(PieceType type, Point[] points, int rotationIndex)
+    //builds the tables for one rotation of a piece
+    private TetrisPiece(PieceType type, int rotationIndex, Point[] body)
     {
-        this(type);
-        this.body = points;
+        this.ptype = type;
         this.rotationIndex = rotationIndex;
-        makeSkirt();
-    }
-
-    //skirt is the array of blocks at the bottom of the piece
-    private void makeSkirt()
-    {
-        //make skirt
-        int width = ptype.getBoundingBox().width;
-        int[] skirt = new int[width];
-        //initialize skirt array
-        for(int i = 0; i < width; i++)
+        this.body = body;
+        this.width = type.getBoundingBox().width;
+        this.height = type.getBoundingBox().height;
+        skirt = new int[width];
+        //initialize the skirt, empty columns keep this value
+        for (int i = 0; i < width; i++)
         {
             skirt[i] = Integer.MAX_VALUE;
         }
-        //find skirt
-        for (Point point : body)
+        int mask = 0;
+        int packed = 0;
+        rowMasks = new int[height];
+        for (int i = 0; i < body.length; i++)
         {
-            //check for normal x values
-            if(point.x > 4 || point.x < 0)
-            {
-                break;
-            }
-            if (skirt[point.x] > point.y)
-            {
-                skirt[point.x] = point.y;
-            }
+            Point point = body[i];
+            packed |= (point.y << 4 | point.x) << (8 * i);
+            rowMasks[point.y] |= 1 << point.x;
+            skirt[point.x] = Math.min(skirt[point.x], point.y);
+            mask |= 1 << (point.y * 4 + point.x);
+        }
+        cellMask = mask;
+        cells = packed;
+        int columns = 0;
+        for (int rowMask : rowMasks)
+        {
+            columns |= rowMask;
+        }
+        minX = Integer.numberOfTrailingZeros(columns);
+        maxX = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(columns);
+        int bottom = 0;
+        while (rowMasks[bottom] == 0)
+        {
+            bottom++;
+        }
+        int top = height - 1;
+        while (rowMasks[top] == 0)
+        {
+            top--;
         }
-        this.skirt = skirt;
+        minY = bottom;
+        maxY = top;
+        //the stick has its own kick tables
+        if (type.equals(PieceType.STICK))
+        {
+            clockwiseKicks = Piece.I_CLOCKWISE_WALL_KICKS[rotationIndex];
+            counterclockwiseKicks = Piece.I_COUNTERCLOCKWISE_WALL_KICKS[rotationIndex];
+        }
+        else
+        {
+            clockwiseKicks = Piece.NORMAL_CLOCKWISE_WALL_KICKS[rotationIndex];
+            counterclockwiseKicks = Piece.NORMAL_COUNTERCLOCKWISE_WALL_KICKS[rotationIndex];
+        }
+    }
+
+    //rotates a body clockwise within a square bounding box of the given size
+    private static Point[] rotateClockwise(Point[] body, int size)
+    {
+        Point[] rotated = new Point[body.length];
+        for (int i = 0; i < body.length; i++)
+        {
+            rotated[i] = new Point(body[i].y, size - 1 - body[i].x);
+        }
+        return rotated;
+    }
+
+    /**
+     * Returns the shared piece of the given type in the given rotation.
+     */
+    public static TetrisPiece getPiece(PieceType type, int rotationIndex)
+    {
+        return PIECES[type.ordinal()][rotationIndex & 3];
     }
 
     @Override
@@ -76,93 +151,38 @@ public final class TetrisPiece implements Piece {
         return rotationIndex;
     }
 
-    public void setRotationIndex(int a){
-        rotationIndex = a;
-    }
-
     @Override
     public Piece clockwisePiece() {
-        Point[] temp = new Point[body.length];
-        for(int i = 0; i < temp.length; i++)
-        {
-            //creates a temporary body for the new piece
-            temp[i] = body[i].getLocation();
-        }
-        if(ptype.equals(PieceType.SQUARE))
-        {
-            for (Point point : temp)
-            {
-                //rotates the temp body clockwise
-                point.setLocation(point.getY(), -point.getX() + 1);
-            }
-        }
-        else if(ptype.equals(PieceType.STICK))
-        {
-            for (Point point : temp)
-            {
-                //rotates the temp body clockwise
-                point.setLocation(point.getY(), -point.getX() + 3);
-            }
-        }
-        else
-        {
-            for (Point point : temp)
-            {
-                //rotates the temp body clockwise
-                point.setLocation(point.getY(), -point.getX() + 2);
-            }
-        }
-        return new TetrisPiece(ptype, temp, (rotationIndex + 1) % 4);
+        return PIECES[ptype.ordinal()][(rotationIndex + 1) & 3];
     }
 
     @Override
     public Piece counterclockwisePiece() {
-        Point[] temp = new Point[body.length];
-        for(int i = 0; i < temp.length; i++)
-        {
-            //creates a temporary body for the new piece
-            temp[i] = body[i].getLocation();
-        }
-        if(ptype.equals(PieceType.SQUARE))
-        {
-            for (Point point : temp)
-            {
-                //rotates the temp body clockwise
-                point.setLocation(-point.getY() + 1, point.getX());
-            }
-        }
-        else if(ptype.equals(PieceType.STICK))
-        {
-            for (Point point : temp)
-            {
-                //rotates the temp body clockwise
-                point.setLocation(-point.getY() + 3, point.getX());
-            }
-        }
-        else
-        {
-            for (Point point : temp)
-            {
-                //rotates the temp body clockwise
-                point.setLocation(-point.getY() + 2, point.getX());
-            }
-        }
-        return new TetrisPiece(ptype, temp, (rotationIndex + 3) % 4);
+        return PIECES[ptype.ordinal()][(rotationIndex + 3) & 3];
     }
 
     @Override
     public int getWidth() {
-        return ptype.getBoundingBox().width;
+        return width;
     }
 
     @Override
     public int getHeight() {
-        return ptype.getBoundingBox().height;
+        return height;
     }
 
     @Override
     public Point[] getBody() {
-        return body;
+        Point[] copy = new Point[body.length];
+        for (int i = 0; i < body.length; i++) {
+            copy[i] = new Point(body[i]);
+        }
+        return copy;
+    }
+
+    @Override
+    public int getCells() {
+        return cells;
     }
 
     @Override
@@ -170,25 +190,66 @@ public final class TetrisPiece implements Piece {
         return skirt;
     }
 
+    /**
+     * Returns the 5 wall kicks to try, in order, when rotating this piece clockwise.
+     */
+    public Point[] getClockwiseKicks() {
+        return clockwiseKicks;
+    }
+
+    /**
+     * Returns the 5 wall kicks to try, in order, when rotating this piece counterclockwise.
+     */
+    public Point[] getCounterclockwiseKicks() {
+        return counterclockwiseKicks;
+    }
+
+    @Override
+    public int[] getRowMasks() {
+        return rowMasks;
+    }
+
+    /**
+     * Returns the lowest x of any block, relative to the bounding box.
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Returns the highest x of any block, relative to the bounding box.
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Returns the lowest y of any block, relative to the bounding box.
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Returns the highest y of any block, relative to the bounding box.
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
     @Override
     public boolean equals(Object other)
     {
+        if (this == other) return true;
         // Ignore objects which aren't also tetris pieces.
         if (!(other instanceof TetrisPiece otherPiece)) return false;
-        if(this.getRotationIndex() != otherPiece.getRotationIndex() && !ptype.equals(PieceType.SQUARE))
-        {
-            return false;
-        }
-        boolean bodyMatch = true;
-        Set<Point> set = Set.of(body);
-        for (int i = 0; i < otherPiece.getBody().length && i < body.length; i++)
-        {
-            if (!set.contains(otherPiece.getBody()[i]))
-            {
-                bodyMatch = false;
-                break;
-            }
-        }
-        return bodyMatch;
+        //rotations with the same blocks (like the square's) count as the same piece
+        return ptype == otherPiece.ptype && cellMask == otherPiece.cellMask;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return ptype.ordinal() * 31 + cellMask;
     }
 }
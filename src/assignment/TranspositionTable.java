@@ -0,0 +1,64 @@
+package assignment;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size cache of the scores of searched positions, keyed by a 64 bit hash such as
+ * {@link Board#getHash()}.
+ *
+ * The table can be shared by any number of threads without locking. Each slot keeps its
+ * hash xored with its score, so a slot torn by two threads writing it at once no longer
+ * matches either hash and just reads as a miss. A new entry always replaces whatever was
+ * in its slot. An empty slot holds a NaN score, so whatever hash it happens to match, it
+ * reads as a miss too.
+ */
+public final class TranspositionTable {
+    // The score bits of an empty slot; an all-zero slot would read as a score of 0 for hash 0.
+    private static final long EMPTY = Double.doubleToRawLongBits(Double.NaN);
+
+    // Two longs per slot: hash ^ score bits, and the score bits.
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * Creates a table with room for 2^bits entries.
+     */
+    public TranspositionTable(int bits) {
+        if (bits < 0 || bits > 28) {
+            throw new IllegalArgumentException("table size must be between 2^0 and 2^28 entries");
+        }
+        mask = (1 << bits) - 1;
+        slots = new AtomicLongArray(2 << bits);
+        clear();
+    }
+
+    /**
+     * Stores the score of the position with the given hash.
+     */
+    public void store(long hash, double score) {
+        int slot = 2 * ((int) hash & mask);
+        long bits = Double.doubleToRawLongBits(score);
+        slots.set(slot + 1, bits);
+        slots.set(slot, hash ^ bits);
+    }
+
+    /**
+     * Returns the stored score of the position with the given hash, or NaN if it isn't in
+     * the table.
+     */
+    public double getScore(long hash) {
+        int slot = 2 * ((int) hash & mask);
+        long bits = slots.get(slot + 1);
+        return (slots.get(slot) ^ bits) == hash ? Double.longBitsToDouble(bits) : Double.NaN;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i += 2) {
+            slots.set(i + 1, EMPTY);
+            slots.set(i, EMPTY);
+        }
+    }
+}
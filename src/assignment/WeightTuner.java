@@ -0,0 +1,345 @@
+package assignment;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Tunes the weights of a {@link LinearEvaluator} for MyBrain without a GUI, with a
+ * genetic algorithm. Each generation, every weight vector in the population plays the
+ * same set of seeded games (a fresh set each generation), all of them in parallel across
+ * the available cores, and is scored by the mean number of lines it clears. The best few
+ * are kept as they are, and the rest of the next generation is bred from tournament
+ * winners by blending two parents and adding gaussian noise that shrinks over time.
+ *
+ * Scaling a weight vector doesn't change which placement MyBrain picks, so every vector
+ * is kept at length 1.
+ *
+ * After every generation the population is written to a checkpoint file, and a run
+ * given an existing checkpoint picks up where it left off. Every random choice is made
+ * from the seed and the generation number, so a resumed run goes on as the interrupted
+ * one would have.
+ */
+public class WeightTuner {
+    // How many of the best vectors go on to the next generation unchanged.
+    public static final int ELITE = 2;
+    // How many vectors are drawn to pick each parent.
+    public static final int TOURNAMENT = 3;
+    // The spread of the noise added to children in the first generation, and how much it
+    // shrinks by each generation after that.
+    public static final double INITIAL_SIGMA = 0.2;
+    public static final double SIGMA_DECAY = 0.95;
+
+    private final FeatureExtractor[] features;
+    private final String[] featureNames;
+    private final int populationSize;
+    private final int games;
+    private final int maxPieces;
+    private final long seed;
+    private final Path checkpoint;
+
+    private int generation;
+    private double[][] population;
+
+    /**
+     * Creates a tuner for weights of the given features, with the given population size,
+     * scoring each vector on the given number of games of at most maxPieces pieces. The
+     * population is loaded from the checkpoint file if it exists, and otherwise starts
+     * around the given weights. A checkpoint made with other features, population size,
+     * games, piece limit or seed is rejected with an IOException.
+     */
+    public WeightTuner(Feature[] features, double[] start, int populationSize, int games, int maxPieces,
+                       long seed, Path checkpoint) throws IOException {
+        if (features.length != start.length || populationSize <= ELITE || games < 1) {
+            throw new IllegalArgumentException("need a starting weight per feature, more than " + ELITE
+                + " vectors and at least one game");
+        }
+        this.features = features.clone();
+        this.featureNames = new String[features.length];
+        for (int i = 0; i < features.length; i++) {
+            featureNames[i] = features[i].name();
+        }
+        this.populationSize = populationSize;
+        this.games = games;
+        this.maxPieces = maxPieces;
+        this.seed = seed;
+        this.checkpoint = checkpoint;
+        if (checkpoint != null && Files.exists(checkpoint)) {
+            load();
+        } else {
+            // Start with the given weights and mutations of them.
+            Random random = new Random(seed);
+            population = new double[populationSize][];
+            population[0] = normalize(start.clone());
+            for (int i = 1; i < populationSize; i++) {
+                population[i] = mutate(population[0], INITIAL_SIGMA, random);
+            }
+        }
+    }
+
+    /**
+     * Scores the current population, writes the checkpoint and replaces the population with
+     * the next generation. Returns the scores of the best vector of the generation scored.
+     */
+    public Result step() throws IOException {
+        Result[] results = evaluate(population, seed + (long) generation * games);
+        Integer[] order = new Integer[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -results[i].getMean()));
+
+        Random random = new Random(seed * 31 + generation + 1);
+        double sigma = INITIAL_SIGMA * Math.pow(SIGMA_DECAY, generation);
+        double[][] next = new double[populationSize][];
+        for (int i = 0; i < ELITE; i++) {
+            next[i] = population[order[i]];
+        }
+        for (int i = ELITE; i < populationSize; i++) {
+            double[] mother = population[order[tournament(random)]];
+            double[] father = population[order[tournament(random)]];
+            next[i] = mutate(blend(mother, father, random), sigma, random);
+        }
+        Result best = results[order[0]];
+        population = next;
+        generation++;
+        if (checkpoint != null) {
+            save(best);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of generations scored so far, including those before a resume.
+     */
+    public int getGeneration() { return generation; }
+
+    // Plays every vector's games, all in parallel, and collects each vector's lines.
+    private Result[] evaluate(double[][] vectors, long firstSeed) {
+        int[] lines = IntStream.range(0, vectors.length * games)
+            .parallel()
+            .map(i -> {
+                Brain brain = new MyBrain(new LinearEvaluator(features, vectors[i / games]), null);
+                return new GameEngine(brain, new Random(firstSeed + i % games), maxPieces).run().getLines();
+            })
+            .toArray();
+        Result[] results = new Result[vectors.length];
+        for (int v = 0; v < vectors.length; v++) {
+            results[v] = new Result(vectors[v], Arrays.copyOfRange(lines, v * games, (v + 1) * games));
+        }
+        return results;
+    }
+
+    // Picks the best ranked of a few random ranks.
+    private int tournament(Random random) {
+        int best = populationSize;
+        for (int i = 0; i < TOURNAMENT; i++) {
+            best = Math.min(best, random.nextInt(populationSize));
+        }
+        return best;
+    }
+
+    // A random point on the line through both parents, a little past either end.
+    private static double[] blend(double[] a, double[] b, Random random) {
+        double t = random.nextDouble() * 1.5 - 0.25;
+        double[] child = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            child[i] = a[i] + t * (b[i] - a[i]);
+        }
+        return child;
+    }
+
+    private static double[] mutate(double[] weights, double sigma, Random random) {
+        double[] child = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            child[i] = weights[i] + sigma * random.nextGaussian();
+        }
+        return normalize(child);
+    }
+
+    private static double[] normalize(double[] weights) {
+        double length = 0;
+        for (double w : weights) {
+            length += w * w;
+        }
+        length = Math.sqrt(length);
+        if (length > 0) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= length;
+            }
+        }
+        return weights;
+    }
+
+    // Writes the population to a temporary file and moves it over the checkpoint, so an
+    // interruption leaves either the old checkpoint or the new one.
+    private void save(Result best) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("generation", Integer.toString(generation));
+        properties.setProperty("features", String.join(",", featureNames));
+        properties.setProperty("population", Integer.toString(populationSize));
+        properties.setProperty("seed", Long.toString(seed));
+        properties.setProperty("games", Integer.toString(games));
+        properties.setProperty("maxPieces", Integer.toString(maxPieces));
+        for (int i = 0; i < populationSize; i++) {
+            properties.setProperty("population." + i, format(population[i]));
+        }
+        properties.setProperty("best.weights", format(best.getWeights()));
+        properties.setProperty("best.lines", best.toString());
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp)) {
+            properties.store(out, "WeightTuner checkpoint");
+        }
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(checkpoint)) {
+            properties.load(in);
+        }
+        // Going on with other settings would be a different run, not the one checkpointed.
+        check(properties, "features", String.join(",", featureNames));
+        check(properties, "population", Integer.toString(populationSize));
+        check(properties, "seed", Long.toString(seed));
+        check(properties, "games", Integer.toString(games));
+        check(properties, "maxPieces", Integer.toString(maxPieces));
+        generation = Integer.parseInt(properties.getProperty("generation"));
+        population = new double[populationSize][];
+        for (int i = 0; i < populationSize; i++) {
+            String vector = properties.getProperty("population." + i);
+            if (vector == null) {
+                throw new IOException("checkpoint " + checkpoint + " has fewer than " + populationSize + " vectors");
+            }
+            population[i] = parse(vector);
+        }
+    }
+
+    private void check(Properties properties, String name, String expected) throws IOException {
+        String found = properties.getProperty(name);
+        if (!expected.equals(found)) {
+            throw new IOException("checkpoint " + checkpoint + " was made with " + name + " " + found
+                + ", not " + expected);
+        }
+    }
+
+    private static String format(double[] weights) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < weights.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            // Full precision, so a resumed run has exactly the same vectors.
+            text.append(Double.toString(weights[i]));
+        }
+        return text.toString();
+    }
+
+    private static double[] parse(String text) {
+        String[] parts = text.split(",");
+        double[] weights = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Double.parseDouble(parts[i].trim());
+        }
+        return weights;
+    }
+
+    /**
+     * The lines one weight vector cleared in each of a generation's games.
+     */
+    public static final class Result {
+        private final double[] weights;
+        private final int[] lines;
+
+        Result(double[] weights, int[] lines) {
+            this.weights = weights.clone();
+            this.lines = lines.clone();
+            Arrays.sort(this.lines);
+        }
+
+        /**
+         * Returns the weight vector.
+         */
+        public double[] getWeights() { return weights.clone(); }
+
+        /**
+         * Returns the lines cleared in each game, fewest first.
+         */
+        public int[] getLines() { return lines.clone(); }
+
+        /**
+         * Returns the mean lines cleared per game.
+         */
+        public double getMean() {
+            long sum = 0;
+            for (int l : lines) {
+                sum += l;
+            }
+            return sum / (double) lines.length;
+        }
+
+        /**
+         * Returns the standard deviation of the lines cleared per game.
+         */
+        public double getStandardDeviation() {
+            double mean = getMean();
+            double sum = 0;
+            for (int l : lines) {
+                sum += (l - mean) * (l - mean);
+            }
+            return Math.sqrt(sum / lines.length);
+        }
+
+        // The lines of the game at the given fraction of the way from the worst to the best.
+        private int percentile(double p) {
+            return lines[(int) Math.round(p * (lines.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "mean %.2f, sd %.2f, min %d, p10 %d, median %d, p90 %d, max %d",
+                getMean(), getStandardDeviation(), lines[0], percentile(0.1), percentile(0.5), percentile(0.9),
+                lines[lines.length - 1]);
+        }
+    }
+
+    /**
+     * Tunes MyBrain's weights, printing the best vector of each generation and how its
+     * games went, and saving a checkpoint after each one; run it again with the same
+     * checkpoint and arguments to continue.
+     *
+     * Usage: WeightTuner [generations] [population] [games per vector] [max pieces per game]
+     *                    [seed] [checkpoint file]
+     */
+    public static void main(String[] args) throws IOException {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int populationSize = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int maxPieces = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        Path checkpoint = Paths.get(args.length > 5 ? args[5] : "weights.checkpoint");
+
+        WeightTuner tuner = new WeightTuner(LinearEvaluator.DEFAULT_FEATURES, MyBrain.DEFAULT_COEF,
+            populationSize, games, maxPieces, seed, checkpoint);
+        if (tuner.getGeneration() > 0) {
+            System.out.println("resuming from generation " + tuner.getGeneration() + " of " + checkpoint);
+        }
+        while (tuner.getGeneration() < generations) {
+            long startTime = System.nanoTime();
+            Result best = tuner.step();
+            System.out.println("generation " + (tuner.getGeneration() - 1) + " ("
+                + (System.nanoTime() - startTime) / 1_000_000 + " ms): " + format(best.getWeights()));
+            System.out.println("  lines: " + best);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import org.junit.jupiter.api.Test;
+
+class FeatureEvaluatorTest {
+
+    // every feature worked out from the parent board has to match the board with the piece
+    // really placed, measured cell by cell
+    @Test
+    void incrementalFeaturesMatchARescan() {
+        Reachability reachability = new Reachability();
+        FeatureEvaluator features = new FeatureEvaluator();
+        MoveRecord record = new MoveRecord();
+        int clears = 0;
+        for (Board board : PlayedBoards.play(8, 300)) {
+            reachability.compute(board);
+            features.reset(board);
+            // the evaluator reads the board it was reset with, so place on a copy
+            Board placed = board.testMove(Board.Action.NOTHING);
+            for (int i = 0; i < reachability.getCount(); i++) {
+                TetrisPiece piece = reachability.getPiece(i);
+                int x = reachability.getX(i);
+                int y = reachability.getY(i);
+                features.evaluate(piece, x, y);
+                placed.place(piece, x, y, record);
+                assertMatches(placed, piece, y, features);
+                clears += placed.getRowsCleared() > 0 ? 1 : 0;
+                placed.undo(record);
+            }
+        }
+        assertTrue(clears > 0, "no placement cleared a row");
+    }
+
+    // an evaluator asked for some features still measures the cheap ones, and refuses to
+    // report the ones it skipped
+    @Test
+    void skipsFeaturesItIsNotAskedFor() {
+        Board board = PlayedBoards.play(1, 40).get(39);
+        FeatureEvaluator all = new FeatureEvaluator();
+        FeatureEvaluator some = new FeatureEvaluator(EnumSet.of(Feature.BUMPINESS));
+        all.reset(board);
+        some.reset(board);
+        Reachability reachability = new Reachability();
+        reachability.compute(board);
+        all.evaluate(reachability.getPiece(0), reachability.getX(0), reachability.getY(0));
+        some.evaluate(reachability.getPiece(0), reachability.getX(0), reachability.getY(0));
+        assertEquals(all.getBumpiness(), some.getBumpiness());
+        assertEquals(all.getHoles(), some.getHoles());
+        assertEquals(all.getMaxHeight(), some.getMaxHeight());
+        assertThrows(IllegalStateException.class, some::getRowTransitions);
+    }
+
+    private static void assertMatches(Board placed, TetrisPiece piece, int y, FeatureEvaluator features) {
+        int width = placed.getWidth();
+        int[] heights = new int[width];
+        int maxHeight = 0, heightSum = 0, holes = 0;
+        for (int c = 0; c < width; c++) {
+            for (int row = 0; row < placed.getHeight(); row++) {
+                if (filled(placed, c, row)) {
+                    heights[c] = row + 1;
+                }
+            }
+            for (int row = 0; row < heights[c]; row++) {
+                holes += filled(placed, c, row) ? 0 : 1;
+            }
+            heightSum += heights[c];
+            maxHeight = Math.max(maxHeight, heights[c]);
+        }
+        int bumpiness = 0, wells = 0;
+        for (int c = 0; c < width; c++) {
+            if (c < width - 1) {
+                bumpiness += Math.abs(heights[c] - heights[c + 1]);
+            }
+            int side = Math.min(c == 0 ? Integer.MAX_VALUE : heights[c - 1], c == width - 1 ? Integer.MAX_VALUE : heights[c + 1]);
+            wells += side == Integer.MAX_VALUE ? 0 : Math.max(0, side - heights[c]);
+        }
+        int rowTransitions = 0, columnTransitions = 0, tSlots = 0;
+        for (int row = 0; row <= maxHeight; row++) {
+            for (int c = -1; c < width; c++) {
+                if (row < maxHeight && filled(placed, c, row) != filled(placed, c + 1, row)) {
+                    rowTransitions++;
+                }
+            }
+            for (int c = 0; c < width; c++) {
+                // nothing is above the stack, even where the board is taller
+                boolean cell = row < maxHeight && filled(placed, c, row);
+                if (cell != filled(placed, c, row - 1)) {
+                    columnTransitions++;
+                }
+                int corners = (filled(placed, c - 1, row) ? 1 : 0) + (filled(placed, c + 1, row) ? 1 : 0)
+                    + (filled(placed, c - 1, row + 2) ? 1 : 0) + (filled(placed, c + 1, row + 2) ? 1 : 0);
+                if (row + 1 < placed.getHeight() && !cell && filled(placed, c, row - 1)
+                        && !filled(placed, c - 1, row + 1) && !filled(placed, c, row + 1) && !filled(placed, c + 1, row + 1)
+                        && corners >= 3) {
+                    tSlots++;
+                }
+            }
+        }
+        // the piece's own cells in the rows it cleared, times the rows
+        int eroded = 0;
+        for (int i = 0; i < placed.getRowsCleared(); i++) {
+            for (int r = piece.getMinY(); r <= piece.getMaxY(); r++) {
+                if (y + r == placed.getClearedRow(i)) {
+                    eroded += Integer.bitCount(piece.getRowMasks()[r]);
+                }
+            }
+        }
+        eroded *= placed.getRowsCleared();
+
+        assertEquals(heightSum, features.getHeightSum());
+        assertEquals(maxHeight, features.getMaxHeight());
+        assertEquals(holes, features.getHoles());
+        assertEquals(bumpiness, features.getBumpiness());
+        assertEquals(wells, features.getWells());
+        assertEquals(rowTransitions, features.getRowTransitions());
+        assertEquals(columnTransitions, features.getColumnTransitions());
+        assertEquals(tSlots, features.getTSlots());
+        assertEquals(placed.getRowsCleared(), features.getRowsCleared());
+        assertEquals(eroded, features.getErodedCells());
+        for (int c = 0; c < width; c++) {
+            assertEquals(heights[c], features.getColumnHeight(c));
+        }
+        for (int row = 0; row < placed.getHeight(); row++) {
+            int mask = 0;
+            for (int c = 0; c < width; c++) {
+                mask |= filled(placed, c, row) ? 1 << c : 0;
+            }
+            assertEquals(mask, features.getRowMask(row));
+        }
+    }
+
+    // whether a cell is filled, counting the walls and the floor as filled
+    private static boolean filled(Board board, int x, int y) {
+        if (x < 0 || x >= board.getWidth() || y < 0) {
+            return true;
+        }
+        return y < board.getHeight() && board.getGrid(x, y) != null;
+    }
+}
@@ -0,0 +1,34 @@
+package assignment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Boards from seeded MyBrain games, one for each piece that came into play, so fast paths
+ * can be checked against slow ones on stacks like the ones the brains really see.
+ */
+final class PlayedBoards {
+    private PlayedBoards() {
+    }
+
+    /**
+     * Plays the given number of games of at most maxPieces pieces, game i shuffling its
+     * pieces with seed i, and returns a copy of the board each time a new piece came in.
+     */
+    static List<Board> play(int games, int maxPieces) {
+        List<Board> boards = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            GameEngine game = new GameEngine(new MyBrain(MyBrain.DEFAULT_COEF), new Random(i), maxPieces);
+            int pieces = 0;
+            do {
+                Board board = game.getBoard();
+                if (game.getPieces() != pieces && board.getCurrentPiece() != null) {
+                    pieces = game.getPieces();
+                    boards.add(board.testMove(Board.Action.NOTHING));
+                }
+            } while (game.step());
+        }
+        return boards;
+    }
+}
@@ -0,0 +1,54 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ReachabilityTest {
+
+    // the bit-parallel search has to find exactly the lock positions the state by state BFS
+    // finds, each of them once
+    @Test
+    void findsTheSameLockPositionsAsTheBfs() {
+        Reachability reachability = new Reachability();
+        PlacementGenerator generator = new PlacementGenerator();
+        for (Board board : PlayedBoards.play(8, 300)) {
+            Set<Long> expected = new HashSet<>();
+            for (Placement placement : generator.generate(board)) {
+                expected.add(placement.getKey());
+            }
+            reachability.compute(board);
+            Set<Long> found = keys(reachability);
+            assertEquals(expected, found);
+            assertEquals(found.size(), reachability.getCount());
+        }
+    }
+
+    // a square can slide under an overhang, which no straight drop reaches
+    @Test
+    void findsTucks() {
+        Board board = new TetrisBoard(10, 24);
+        // a flat stick lying across columns 2 to 5 in row 2, leaving rows 0 and 1 empty below it
+        Piece stick = TetrisPiece.getPiece(Piece.PieceType.STICK, 0);
+        board.place(stick, 2, 0, null);
+        Piece square = TetrisPiece.getPiece(Piece.PieceType.SQUARE, 0);
+        board.nextPiece(square, new Point(7, 18));
+
+        Reachability reachability = new Reachability();
+        reachability.compute(board);
+        TetrisPiece tucked = TetrisPiece.getPiece(Piece.PieceType.SQUARE, 0);
+        assertTrue(keys(reachability).contains(Placement.key(tucked, 4, 0)));
+    }
+
+    private static Set<Long> keys(Reachability reachability) {
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < reachability.getCount(); i++) {
+            keys.add(Placement.key(reachability.getPiece(i), reachability.getX(i), reachability.getY(i)));
+        }
+        return keys;
+    }
+}
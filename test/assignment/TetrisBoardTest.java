@@ -0,0 +1,126 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.junit.jupiter.api.Test;
+
+class TetrisBoardTest {
+
+    // equals and hashCode compare row masks and hashes; they have to agree with comparing
+    // every cell through the Board interface
+    @Test
+    void equalsMatchesCellComparison() {
+        int pairs = 0, equal = 0;
+        List<Board> previous = new ArrayList<>();
+        for (Board board : PlayedBoards.play(8, 300)) {
+            List<Board> boards = variants(board);
+            List<Board> compared = new ArrayList<>(boards);
+            compared.addAll(previous);
+            for (Board a : boards) {
+                for (Board b : compared) {
+                    boolean same = sameCells(a, b);
+                    assertEquals(same, a.equals(b), () -> "equals disagrees with the cells of\n" + a + "\nand\n" + b);
+                    if (same) {
+                        assertEquals(a.hashCode(), b.hashCode());
+                        assertEquals(a.getHash(), b.getHash());
+                        equal++;
+                    }
+                    pairs++;
+                }
+            }
+            previous = boards;
+        }
+        // make sure both outcomes were really tested
+        assertTrue(equal > 0 && equal < pairs);
+    }
+
+    // a held piece comes back centered where the piece it swaps with was given, like the engine
+    // centers every piece it deals
+    @Test
+    void heldPieceComesBackCentered() {
+        Board board = new TetrisBoard(10, 24);
+        Piece stick = TetrisPiece.getPiece(Piece.PieceType.STICK, 0);
+        Piece t = TetrisPiece.getPiece(Piece.PieceType.T, 0);
+        board.nextPiece(stick, GameEngine.spawnPosition(board, stick));
+        assertEquals(3, board.getCurrentPiecePosition().x);
+        assertEquals(Board.Result.NO_PIECE, board.move(Board.Action.HOLD));
+        board.nextPiece(t, GameEngine.spawnPosition(board, t));
+        assertEquals(4, board.getCurrentPiecePosition().x);
+        assertEquals(GameEngine.spawnPosition(board, stick), board.getSpawnPosition(stick));
+        board.move(Board.Action.DROP);
+
+        // the stick held while a t is in play comes back where the engine puts a stick
+        board.nextPiece(t, GameEngine.spawnPosition(board, t));
+        assertEquals(Board.Result.SUCCESS, board.move(Board.Action.HOLD));
+        assertEquals(stick, board.getCurrentPiece());
+        assertEquals(GameEngine.spawnPosition(board, stick), board.getCurrentPiecePosition());
+        board.move(Board.Action.DROP);
+
+        // and the t held while a stick is in play comes back where the engine puts a t
+        board.nextPiece(stick, GameEngine.spawnPosition(board, stick));
+        assertEquals(Board.Result.SUCCESS, board.move(Board.Action.HOLD));
+        assertEquals(t, board.getCurrentPiece());
+        assertEquals(GameEngine.spawnPosition(board, t), board.getCurrentPiecePosition());
+    }
+
+    // boards made from the given one that are sometimes equal to each other and sometimes not
+    private static List<Board> variants(Board board) {
+        List<Board> boards = new ArrayList<>();
+        boards.add(board.testMove(Board.Action.NOTHING));
+        // equal to the copy unless the piece is against the left wall
+        boards.add(board.testMove(Board.Action.LEFT).testMove(Board.Action.RIGHT));
+        // both place the piece in the same cells
+        boards.add(board.testMove(Board.Action.DROP));
+        boards.add(board.testMove(Board.Action.DOWN).testMove(Board.Action.DROP));
+        // placed and taken back, so equal to the copy again
+        Board undone = board.testMove(Board.Action.NOTHING);
+        MoveRecord record = new MoveRecord();
+        undone.move(Board.Action.DROP, record);
+        undone.undo(record);
+        boards.add(undone);
+        boards.add(board.testMove(Board.Action.CLOCKWISE));
+        // the same piece in the same place, but given there rather than moved down to it, so a
+        // held piece would come back lower
+        Board moved = board.testMove(Board.Action.DOWN);
+        Board respawned = moved.testMove(Board.Action.NOTHING);
+        respawned.nextPiece(moved.getCurrentPiece(), moved.getCurrentPiecePosition());
+        boards.add(moved);
+        boards.add(respawned);
+        // only equal to the others while the stack is empty
+        Board empty = new TetrisBoard(board.getWidth(), board.getHeight());
+        empty.nextPiece(board.getCurrentPiece(), board.getCurrentPiecePosition());
+        boards.add(empty);
+        return boards;
+    }
+
+    // whether two boards have the same cells, current piece and position, and hold state,
+    // including where a HOLD would bring the held piece back
+    private static boolean sameCells(Board a, Board b) {
+        if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+            return false;
+        }
+        if (!Objects.equals(a.getCurrentPiece(), b.getCurrentPiece())
+                || !Objects.equals(a.getCurrentPiecePosition(), b.getCurrentPiecePosition())) {
+            return false;
+        }
+        if (!Objects.equals(a.getHeldPiece(), b.getHeldPiece()) || a.canHold() != b.canHold()) {
+            return false;
+        }
+        if (a.canHold() && a.getHeldPiece() != null
+                && !a.getSpawnPosition(a.getHeldPiece()).equals(b.getSpawnPosition(b.getHeldPiece()))) {
+            return false;
+        }
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                if (a.getGrid(x, y) != b.getGrid(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
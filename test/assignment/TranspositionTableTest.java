@@ -0,0 +1,33 @@
+package assignment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+
+    // no hash, not even 0, finds a score in a slot nothing was stored in
+    @Test
+    void emptySlotsMiss() {
+        TranspositionTable table = new TranspositionTable(4);
+        assertTrue(Double.isNaN(table.getScore(0)));
+        assertTrue(Double.isNaN(table.getScore(Double.doubleToRawLongBits(Double.NaN))));
+        table.store(0, 0.0);
+        table.clear();
+        assertTrue(Double.isNaN(table.getScore(0)));
+    }
+
+    @Test
+    void storedScoresReadBackUntilReplaced() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.store(0, 0.0);
+        table.store(3, -2.5);
+        assertEquals(0.0, table.getScore(0));
+        assertEquals(-2.5, table.getScore(3));
+        // 16 goes in the same slot as 0, so it replaces it
+        table.store(16, 1.0);
+        assertEquals(1.0, table.getScore(16));
+        assertTrue(Double.isNaN(table.getScore(0)));
+    }
+}